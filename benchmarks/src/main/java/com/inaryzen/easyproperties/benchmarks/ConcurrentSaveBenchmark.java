@@ -0,0 +1,89 @@
+package com.inaryzen.easyproperties.benchmarks;
+
+import com.inaryzen.easyproperties.PropertiesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Saves from several threads, each with its own manager and instance, either to one shared file (contention on
+ * the file lock) or to a file per thread (should scale with the number of threads).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConcurrentSaveBenchmark {
+    @State(Scope.Benchmark)
+    public static class SharedState {
+        @Param({"10", "100", "1000", "10000"})
+        public int propertyCount;
+
+        @Param({"true", "false"})
+        public boolean sharedFile;
+
+        Path directory;
+        Class<?> settingsClass;
+        MethodHandle setter;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            directory = Files.createTempDirectory("easy-properties-concurrent-save");
+            settingsClass = GeneratedSettings.load(GeneratedSettings.compile(propertyCount, directory), propertyCount);
+            setter = MethodHandles.publicLookup()
+                    .findVirtual(settingsClass, "setP0", MethodType.methodType(void.class, int.class))
+                    .asType(MethodType.methodType(void.class, Object.class, int.class));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            GeneratedSettings.delete(directory);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        PropertiesManager manager;
+        Object instance;
+        int counter;
+
+        @Setup(Level.Trial)
+        public void setUp(SharedState shared) {
+            int thread = shared.threads.getAndIncrement();
+            String fileName = shared.sharedFile ? "settings.properties" : "settings-" + thread + ".properties";
+            manager = new PropertiesManager();
+            instance = manager.registerProperties(shared.settingsClass, shared.directory.resolve(fileName).toString());
+            // values differ between threads, so every save of the shared file is a real write
+            counter = thread * 125_000_000;
+        }
+    }
+
+    @Benchmark
+    public void save(SharedState shared, ThreadState state) throws Throwable {
+        shared.setter.invokeExact(state.instance, ++state.counter);
+        state.manager.saveProperties(state.instance);
+    }
+}
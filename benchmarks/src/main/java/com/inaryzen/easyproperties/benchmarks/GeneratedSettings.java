@@ -0,0 +1,101 @@
+package com.inaryzen.easyproperties.benchmarks;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Generates properties classes of any size: property {@code pN} has type {@code TYPES[N % TYPES.length]}.
+ * Classes are compiled at runtime and can be loaded by a fresh class loader every time, which gives a class that
+ * easy-properties has never seen.
+ */
+final class GeneratedSettings {
+    static final String[] TYPES = {"int", "long", "double", "boolean", "String"};
+    static final String[] VALUES = {"42", "9000000000", "42.42", "true", "some text value"};
+
+    private GeneratedSettings() {
+    }
+
+    static String className(int propertyCount) {
+        return "generated.Settings" + propertyCount;
+    }
+
+    /**
+     * Compiles the class with the given number of properties.
+     *
+     * @return directory with the compiled class
+     */
+    static Path compile(int propertyCount, Path directory) throws IOException {
+        String simpleName = "Settings" + propertyCount;
+        StringBuilder source = new StringBuilder("package generated;\n\npublic class ").append(simpleName).append(" {\n");
+        for (int i = 0; i < propertyCount; i++) {
+            String type = TYPES[i % TYPES.length];
+            String value = "String".equals(type) ? "\"\"" : "int".equals(type) || "long".equals(type) ? "0"
+                    : "double".equals(type) ? "0.0" : "false";
+            source.append("    private ").append(type).append(" p").append(i).append(" = ").append(value).append(";\n");
+            source.append("    public ").append(type).append(" getP").append(i).append("() { return p").append(i).append("; }\n");
+            source.append("    public void setP").append(i).append('(').append(type).append(" value) { p").append(i)
+                    .append(" = value; }\n");
+        }
+        source.append("}\n");
+
+        Path sources = Files.createDirectories(directory.resolve("src").resolve("generated"));
+        Path sourceFile = sources.resolve(simpleName + ".java");
+        Files.write(sourceFile, source.toString().getBytes(StandardCharsets.UTF_8));
+        Path classes = Files.createDirectories(directory.resolve("classes"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null)
+            throw new IllegalStateException("Benchmarks should be run on a JDK");
+        int result = compiler.run(null, null, null, "-d", classes.toString(), sourceFile.toString());
+        if (result != 0)
+            throw new IllegalStateException("Cannot compile " + sourceFile);
+        return classes;
+    }
+
+    /**
+     * Loads the class by a new class loader.
+     */
+    static Class<?> load(Path classes, int propertyCount) {
+        try {
+            URLClassLoader classLoader = new URLClassLoader(new URL[]{classes.toUri().toURL()},
+                    GeneratedSettings.class.getClassLoader());
+            return classLoader.loadClass(className(propertyCount));
+        } catch (MalformedURLException | ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes values of all the properties of the class to the file.
+     */
+    static void writeProperties(Path file, int propertyCount) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < propertyCount; i++)
+            content.append('p').append(i).append('=').append(VALUES[i % VALUES.length]).append('\n');
+        Files.write(file, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
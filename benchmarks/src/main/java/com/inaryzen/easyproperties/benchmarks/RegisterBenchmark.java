@@ -0,0 +1,74 @@
+package com.inaryzen.easyproperties.benchmarks;
+
+import com.inaryzen.easyproperties.PropertiesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registration of a properties class: cold (the class is new to easy-properties, so introspection is included) and
+ * warm (metadata is cached, only reading and binding the file).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RegisterBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int propertyCount;
+
+    private Path directory;
+    private Path classes;
+    private String propertiesFile;
+    private Class<?> warmClass;
+    private Class<?> coldClass;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("easy-properties-register");
+        classes = GeneratedSettings.compile(propertyCount, directory);
+        Path file = directory.resolve("settings.properties");
+        GeneratedSettings.writeProperties(file, propertyCount);
+        propertiesFile = file.toString();
+
+        warmClass = GeneratedSettings.load(classes, propertyCount);
+        PropertiesManager.preload(warmClass);
+    }
+
+    @Setup(Level.Invocation)
+    public void loadColdClass() {
+        coldClass = GeneratedSettings.load(classes, propertyCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        GeneratedSettings.delete(directory);
+    }
+
+    @Benchmark
+    public Object coldRegister() {
+        return new PropertiesManager().registerProperties(coldClass, propertiesFile);
+    }
+
+    @Benchmark
+    public Object warmBind() {
+        return new PropertiesManager().registerProperties(warmClass, propertiesFile);
+    }
+}
@@ -0,0 +1,75 @@
+package com.inaryzen.easyproperties.benchmarks;
+
+import com.inaryzen.easyproperties.PropertiesManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves of a properties class with one changed property per save, and saves without changes, which dirty tracking
+ * should turn into no writes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SaveBenchmark {
+    @Param({"10", "100", "1000", "10000"})
+    public int propertyCount;
+
+    private Path directory;
+    private PropertiesManager manager;
+    private Object instance;
+    private MethodHandle setter;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("easy-properties-save");
+        Path classes = GeneratedSettings.compile(propertyCount, directory);
+        Class<?> settingsClass = GeneratedSettings.load(classes, propertyCount);
+
+        manager = new PropertiesManager();
+        instance = manager.registerProperties(settingsClass, directory.resolve("settings.properties").toString());
+        setter = MethodHandles.publicLookup()
+                .findVirtual(settingsClass, "setP0", MethodType.methodType(void.class, int.class))
+                .asType(MethodType.methodType(void.class, Object.class, int.class));
+        manager.saveProperties(instance);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        GeneratedSettings.delete(directory);
+    }
+
+    @Benchmark
+    public void saveChanged() throws Throwable {
+        setter.invokeExact(instance, ++counter);
+        manager.saveProperties(instance);
+    }
+
+    @Benchmark
+    public void saveUnchanged() {
+        manager.saveProperties(instance);
+    }
+}
@@ -0,0 +1,289 @@
+package com.inaryzen.easyproperties.processor;
+
+import com.inaryzen.easyproperties.Binder;
+import com.inaryzen.easyproperties.Matches;
+import com.inaryzen.easyproperties.OneOf;
+import com.inaryzen.easyproperties.Range;
+import com.inaryzen.easyproperties.Required;
+import com.inaryzen.easyproperties.Settings;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates a {@link Binder} for every class marked with {@link Settings}. Properties are discovered by the same
+ * rules as the runtime introspection: a public getter (get/is) and a setter of the same type give a property named
+ * by the lowercased method suffix.
+ * <p>
+ * Only properties of primitive types, their wrappers and String are supported by the generated code; classes with
+ * properties of other types (enums, arrays, lists, nested beans, types of converter providers) get no binder and are
+ * bound by reflection, which is reported by a warning.
+ * <p>
+ * The binders are listed in META-INF/services/com.inaryzen.easyproperties.Binder, so the runtime finds them by
+ * {@link java.util.ServiceLoader} rather than by reflection.
+ */
+@SupportedAnnotationTypes("com.inaryzen.easyproperties.Settings")
+public class SettingsProcessor extends AbstractProcessor {
+    static final String SERVICES = "META-INF/services/" + Binder.class.getName();
+    static final String SUFFIX = "_PropertiesBinder";
+
+    /**
+     * Type name -> expression converting the string {@code value} to the type.
+     */
+    private static final Map<String, String> PARSERS = new HashMap<>();
+    static {
+        PARSERS.put("java.lang.String", "value");
+        PARSERS.put("java.lang.Integer", "Integer.valueOf(value)");
+        PARSERS.put("int", "Integer.parseInt(value)");
+        PARSERS.put("java.lang.Double", "Double.valueOf(value)");
+        PARSERS.put("double", "Double.parseDouble(value)");
+        PARSERS.put("java.lang.Boolean", "Boolean.valueOf(value)");
+        PARSERS.put("boolean", "Boolean.parseBoolean(value)");
+        PARSERS.put("java.lang.Long", "Long.valueOf(value)");
+        PARSERS.put("long", "Long.parseLong(value)");
+        PARSERS.put("java.lang.Float", "Float.valueOf(value)");
+        PARSERS.put("float", "Float.parseFloat(value)");
+        PARSERS.put("java.lang.Short", "Short.valueOf(value)");
+        PARSERS.put("short", "Short.parseShort(value)");
+        PARSERS.put("java.lang.Character", "Character.valueOf(value.charAt(0))");
+        PARSERS.put("char", "value.charAt(0)");
+        PARSERS.put("java.lang.Byte", "Byte.valueOf(value)");
+        PARSERS.put("byte", "Byte.parseByte(value)");
+    }
+
+    // qualified names of the binders generated in all the rounds and the classes they are generated for
+    private final Set<String> binders = new TreeSet<>();
+    private final List<Element> originatingElements = new ArrayList<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Settings.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@Settings is applicable to classes only");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            if (checkAccessible(type))
+                generate(type);
+        }
+        if (roundEnv.processingOver() && !binders.isEmpty())
+            writeServices();
+        return true;
+    }
+
+    /**
+     * Lists the binders in the services file once all the rounds are over; binders listed by a previous incremental
+     * build are kept.
+     */
+    private void writeServices() {
+        Set<String> lines = new TreeSet<>(binders);
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES);
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.trim().isEmpty())
+                        lines.add(line.trim());
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // no services file yet
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES,
+                    originatingElements.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                for (String line : lines)
+                    writer.write(line + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write " + SERVICES + ": " + e.getMessage());
+        }
+    }
+
+    private boolean checkAccessible(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "Properties class cannot be abstract");
+            return false;
+        }
+        for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            TypeElement enclosing = (TypeElement) e;
+            if (enclosing.getNestingKind() != NestingKind.TOP_LEVEL && enclosing.getNestingKind() != NestingKind.MEMBER) {
+                error(type, "Properties class cannot be local or anonymous");
+                return false;
+            }
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                error(type, "Properties class and its enclosing classes cannot be private");
+                return false;
+            }
+            if (enclosing.getNestingKind() == NestingKind.MEMBER && enclosing == type
+                    && !enclosing.getModifiers().contains(Modifier.STATIC)) {
+                error(type, "Nested properties class should be static");
+                return false;
+            }
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                if (constructor.getModifiers().contains(Modifier.PRIVATE)) {
+                    error(type, "Non-argument constructor of the properties class cannot be private");
+                    return false;
+                }
+                return true;
+            }
+        }
+        error(type, "Non-argument constructor not found");
+        return false;
+    }
+
+    private void generate(TypeElement type) {
+        Map<String, ExecutableElement> getters = new TreeMap<>();
+        Map<String, ExecutableElement> setters = new TreeMap<>();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.STATIC))
+                continue;
+            String name = method.getSimpleName().toString();
+            int parameters = method.getParameters().size();
+            if (name.startsWith("get") && parameters == 0 && method.getReturnType().getKind() != TypeKind.VOID)
+                getters.put(propertyName(name, "get"), method);
+            else if (name.startsWith("is") && parameters == 0 && method.getReturnType().getKind() != TypeKind.VOID)
+                getters.put(propertyName(name, "is"), method);
+            else if (name.startsWith("set") && parameters == 1)
+                setters.put(propertyName(name, "set"), method);
+        }
+
+        String className = type.getQualifiedName().toString();
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binderName = binderSimpleName(type);
+
+        StringBuilder bind = new StringBuilder();
+        StringBuilder store = new StringBuilder();
+        boolean constrained = false;
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            String propertyName = entry.getKey();
+            ExecutableElement getter = entry.getValue();
+            ExecutableElement setter = setters.get(propertyName);
+            if (setter == null)
+                continue;
+
+            constrained |= getter.getAnnotation(Range.class) != null || getter.getAnnotation(Matches.class) != null
+                    || getter.getAnnotation(OneOf.class) != null || getter.getAnnotation(Required.class) != null;
+
+            TypeMirror propertyType = getter.getReturnType();
+            if (!processingEnv.getTypeUtils().isSameType(propertyType, setter.getParameters().get(0).asType()))
+                continue;
+
+            String parser = PARSERS.get(propertyType.toString());
+            if (parser == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Binder is not generated, property "
+                        + propertyName + " of type " + propertyType + " is bound by reflection", getter);
+                return;
+            }
+
+            bind.append("        value = properties.getProperty(\"").append(propertyName).append("\");\n")
+                    .append("        if (value != null) {\n")
+                    .append("            value = checkLoadedValue(value);\n")
+                    .append("            instance.").append(setter.getSimpleName()).append('(').append(parser).append(");\n")
+                    .append("        }\n");
+
+            String read = "instance." + getter.getSimpleName() + "()";
+            store.append("        properties.setProperty(\"").append(propertyName).append("\", ")
+                    .append(propertyType.getKind().isPrimitive() ? "String.valueOf(" + read + ")" : "storedValue(" + read + ")")
+                    .append(");\n");
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty())
+            source.append("package ").append(packageName).append(";\n\n");
+        source.append("// Generated by ").append(SettingsProcessor.class.getName()).append(", do not edit\n")
+                .append("public final class ").append(binderName)
+                .append(" extends com.inaryzen.easyproperties.Binder<").append(className).append("> {\n")
+                .append("    @Override\n")
+                .append("    public Class<").append(className).append("> getSettingsClass() {\n")
+                .append("        return ").append(className).append(".class;\n")
+                .append("    }\n\n");
+        if (constrained) {
+            // the constraints are checked by the runtime after binding
+            source.append("    @Override\n")
+                    .append("    public boolean hasConstraints() {\n")
+                    .append("        return true;\n")
+                    .append("    }\n\n");
+        }
+        source.append("    @Override\n")
+                .append("    public ").append(className).append(" newInstance() {\n")
+                .append("        return new ").append(className).append("();\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void bind(").append(className).append(" instance, java.util.Properties properties) {\n")
+                .append("        String value;\n")
+                .append(bind)
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public void store(").append(className).append(" instance, java.util.Properties properties) {\n")
+                .append(store)
+                .append("    }\n")
+                .append("}\n");
+
+        String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + "." + binderName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedBinderName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+            binders.add(qualifiedBinderName);
+            originatingElements.add(type);
+        } catch (IOException e) {
+            error(type, "Cannot generate binder " + qualifiedBinderName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Nested classes are joined by '_'.
+     */
+    private static String binderSimpleName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element e = type.getEnclosingElement(); e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement())
+            name.insert(0, '_').insert(0, e.getSimpleName());
+        return name.append(SUFFIX).toString();
+    }
+
+    private static String propertyName(String methodName, String prefix) {
+        return methodName.substring(prefix.length()).toLowerCase(Locale.ROOT);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,122 @@
+package com.inaryzen.easyproperties.processor;
+
+import com.inaryzen.easyproperties.Binder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SettingsProcessorTest {
+    private static final String SOURCE = "package sample;\n" +
+            "@com.inaryzen.easyproperties.Settings\n" +
+            "public class AppSettings {\n" +
+            "    private int id = 42;\n" +
+            "    private String name = \"name\";\n" +
+            "    private boolean enabled;\n" +
+            "    public int getId() { return id; }\n" +
+            "    public void setId(int id) { this.id = id; }\n" +
+            "    @com.inaryzen.easyproperties.Required\n" +
+            "    public String getName() { return name; }\n" +
+            "    public void setName(String name) { this.name = name; }\n" +
+            "    public boolean isEnabled() { return enabled; }\n" +
+            "    public void setEnabled(boolean enabled) { this.enabled = enabled; }\n" +
+            "    public String getReadOnly() { return \"\"; }\n" +
+            "}\n";
+
+    private static final String UNSUPPORTED_SOURCE = "package sample;\n" +
+            "@com.inaryzen.easyproperties.Settings\n" +
+            "public class UnsupportedSettings {\n" +
+            "    private java.math.BigInteger id;\n" +
+            "    public java.math.BigInteger getId() { return id; }\n" +
+            "    public void setId(java.math.BigInteger id) { this.id = id; }\n" +
+            "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Compiles an annotated class, checks that the generated binder moves values in both directions
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void generateBinder() throws Exception {
+        Path output = folder.newFolder("classes").toPath();
+        assertTrue(compile(output, "AppSettings", SOURCE).getDiagnostics().isEmpty());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{output.toUri().toURL()}, getClass().getClassLoader())) {
+            Class<?> settingsClass = classLoader.loadClass("sample.AppSettings");
+            Class<?> binderClass = classLoader.loadClass("sample.AppSettings" + SettingsProcessor.SUFFIX);
+            Binder<Object> binder = (Binder<Object>) binderClass.getConstructor().newInstance();
+            assertEquals(settingsClass, binder.getSettingsClass());
+            assertTrue(binder.hasConstraints());
+
+            // registered as a service, so the runtime finds it without reflection
+            assertEquals(Collections.singletonList(binderClass.getName()),
+                    Files.readAllLines(output.resolve(SettingsProcessor.SERVICES), StandardCharsets.UTF_8));
+
+            Properties properties = new Properties();
+            properties.setProperty("id", "99");
+            properties.setProperty("enabled", "true");
+            Object instance = binder.newInstance();
+            binder.bind(instance, properties);
+
+            Properties stored = new Properties();
+            binder.store(instance, stored);
+            assertEquals("99", stored.getProperty("id"));
+            assertEquals("name", stored.getProperty("name"));
+            assertEquals("true", stored.getProperty("enabled"));
+            assertEquals(3, stored.size());
+        }
+    }
+
+    /**
+     * Compiles an annotated class that has properties of types the generated code does not support, checks that it
+     * compiles with a warning and gets no binder, so it is bound by reflection
+     */
+    @Test
+    public void unsupportedPropertyType() throws Exception {
+        Path output = folder.newFolder("classes").toPath();
+        DiagnosticCollector<JavaFileObject> diagnostics = compile(output, "UnsupportedSettings", UNSUPPORTED_SOURCE);
+        assertEquals(1, diagnostics.getDiagnostics().size());
+        assertEquals(Diagnostic.Kind.WARNING, diagnostics.getDiagnostics().get(0).getKind());
+        assertTrue(Files.exists(output.resolve("sample/UnsupportedSettings.class")));
+        assertFalse(Files.exists(output.resolve("sample/UnsupportedSettings" + SettingsProcessor.SUFFIX + ".class")));
+        assertFalse(Files.exists(output.resolve(SettingsProcessor.SERVICES)));
+    }
+
+    private DiagnosticCollector<JavaFileObject> compile(Path output, String className, String source) throws Exception {
+        Path sources = folder.newFolder().toPath();
+        Path file = sources.resolve(className + ".java");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+                    Arrays.asList("-d", output.toString(), "-s", output.toString(),
+                            "-classpath", System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"))),
+                    null, fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(file.toFile())));
+            task.setProcessors(Collections.singletonList(new SettingsProcessor()));
+            task.call();
+        }
+        return diagnostics;
+    }
+}
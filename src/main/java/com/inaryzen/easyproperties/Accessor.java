@@ -0,0 +1,410 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Direct invoker of a getter/setter pair, built once per property from {@link MethodHandle}s.
+ * <p>
+ * int, long, double and boolean properties with specialized converters ({@link IntConverter} etc.) get specialized
+ * implementations that parse and format the value without boxing it; all the other types go through
+ * {@link ObjectAccessor}.
+ */
+abstract class Accessor {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    final Method getter;
+    final Method setter;
+
+    Accessor(Method getter, Method setter) {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * Converts the value and passes it to the setter.
+     */
+    abstract void write(Object instance, String value);
+
+    /**
+     * Converts the value given as a range of chars and passes it to the setter; primitive accessors parse the chars
+     * without creating a string.
+     */
+    void write(Object instance, char[] chars, int offset, int length) {
+        write(instance, new String(chars, offset, length));
+    }
+
+    /**
+     * Reads the value by the getter and converts it to a string.
+     */
+    abstract String read(Object instance);
+
+    /**
+     * Passes the value of the property of one instance to the setter of another one without converting it; lists and
+     * arrays are {@link #copyOf copied}.
+     */
+    abstract void copy(Object from, Object to);
+
+    /**
+     * @return a copy of the value if it is a list or an array, the value itself otherwise; the elements and the
+     * values of the other supported types are immutable, so the instances share nothing that can be modified
+     */
+    static Object copyOf(Object value) {
+        if (value instanceof List)
+            return new ArrayList<>((List<?>) value);
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * @return an accessor for the pair or null if the methods cannot be unreflected; in that case the caller
+     * should fall back to {@link Method#invoke}
+     */
+    @SuppressWarnings("unchecked") // the converter has been found for the property type
+    static Accessor create(Method getter, Method setter, Converter<?> converter) {
+        Class<?> type = getter.getReturnType();
+        if (type != setter.getParameterTypes()[0])
+            return null;
+
+        MethodHandle getterHandle;
+        MethodHandle setterHandle;
+        try {
+            getterHandle = LOOKUP.unreflect(getter);
+            setterHandle = LOOKUP.unreflect(setter);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+
+        if (type == int.class && converter instanceof IntConverter)
+            return new IntAccessor(getter, setter, getterHandle, setterHandle, (IntConverter) converter);
+        if (type == long.class && converter instanceof LongConverter)
+            return new LongAccessor(getter, setter, getterHandle, setterHandle, (LongConverter) converter);
+        if (type == double.class && converter instanceof DoubleConverter)
+            return new DoubleAccessor(getter, setter, getterHandle, setterHandle, (DoubleConverter) converter);
+        if (type == boolean.class && converter instanceof BooleanConverter)
+            return new BooleanAccessor(getter, setter, getterHandle, setterHandle, (BooleanConverter) converter);
+        return new ObjectAccessor(getter, setter, getterHandle, setterHandle, (Converter<Object>) converter);
+    }
+
+    /**
+     * Parses the chars the way {@link Long#parseLong(String)} does and checks that the result is within the range.
+     */
+    static long parseLong(char[] chars, int offset, int length, long min, long max) {
+        int i = offset;
+        int end = offset + length;
+        if (length == 0)
+            throw numberFormat(chars, offset, length);
+
+        boolean negative = false;
+        char first = chars[i];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end)
+                throw numberFormat(chars, offset, length);
+        }
+        // accumulate negatively, the negative range is the larger one
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        while (i < end) {
+            int digit = Character.digit(chars[i++], 10);
+            if (digit < 0 || result < multiplyLimit)
+                throw numberFormat(chars, offset, length);
+            result *= 10;
+            if (result < limit + digit)
+                throw numberFormat(chars, offset, length);
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses the chars the way {@link Boolean#parseBoolean(String)} does.
+     */
+    static boolean parseBoolean(char[] chars, int offset, int length) {
+        // setting 0x20 bit maps an ASCII capital letter to the small one
+        return length == 4
+                && (chars[offset] | 0x20) == 't'
+                && (chars[offset + 1] | 0x20) == 'r'
+                && (chars[offset + 2] | 0x20) == 'u'
+                && (chars[offset + 3] | 0x20) == 'e';
+    }
+
+    private static NumberFormatException numberFormat(char[] chars, int offset, int length) {
+        return new NumberFormatException("For input string: \"" + new String(chars, offset, length) + "\"");
+    }
+
+    RuntimeException setterFailure(Object value, Throwable cause) {
+        return new RuntimeException("Cannot apply property value; method: " + setter + "; value: " + value, cause);
+    }
+
+    RuntimeException getterFailure(Throwable cause) {
+        return new RuntimeException("Cannot invoke method: " + getter, cause);
+    }
+
+    static final class IntAccessor extends Accessor {
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+
+        final IntConverter converter;
+
+        IntAccessor(Method getter, Method setter, MethodHandle getterHandle, MethodHandle setterHandle,
+                   IntConverter converter) {
+            super(getter, setter);
+            this.converter = converter;
+            this.getterHandle = getterHandle.asType(MethodType.methodType(int.class, Object.class));
+            this.setterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, int.class));
+        }
+
+        int getInt(Object instance) {
+            try {
+                return (int) getterHandle.invokeExact(instance);
+            } catch (Throwable e) {
+                throw getterFailure(e);
+            }
+        }
+
+        void setInt(Object instance, int value) {
+            try {
+                setterHandle.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw setterFailure(value, e);
+            }
+        }
+
+        @Override
+        void write(Object instance, String value) {
+            setInt(instance, converter.parseInt(value));
+        }
+
+        @Override
+        void write(Object instance, char[] chars, int offset, int length) {
+            if (converter == Converters.INT)
+                setInt(instance, (int) parseLong(chars, offset, length, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            else
+                write(instance, new String(chars, offset, length));
+        }
+
+        @Override
+        String read(Object instance) {
+            return converter.formatInt(getInt(instance));
+        }
+
+        @Override
+        void copy(Object from, Object to) {
+            setInt(to, getInt(from));
+        }
+    }
+
+    static final class LongAccessor extends Accessor {
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+
+        final LongConverter converter;
+
+        LongAccessor(Method getter, Method setter, MethodHandle getterHandle, MethodHandle setterHandle,
+                    LongConverter converter) {
+            super(getter, setter);
+            this.converter = converter;
+            this.getterHandle = getterHandle.asType(MethodType.methodType(long.class, Object.class));
+            this.setterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, long.class));
+        }
+
+        long getLong(Object instance) {
+            try {
+                return (long) getterHandle.invokeExact(instance);
+            } catch (Throwable e) {
+                throw getterFailure(e);
+            }
+        }
+
+        void setLong(Object instance, long value) {
+            try {
+                setterHandle.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw setterFailure(value, e);
+            }
+        }
+
+        @Override
+        void write(Object instance, String value) {
+            setLong(instance, converter.parseLong(value));
+        }
+
+        @Override
+        void write(Object instance, char[] chars, int offset, int length) {
+            if (converter == Converters.LONG)
+                setLong(instance, parseLong(chars, offset, length, Long.MIN_VALUE, Long.MAX_VALUE));
+            else
+                write(instance, new String(chars, offset, length));
+        }
+
+        @Override
+        String read(Object instance) {
+            return converter.formatLong(getLong(instance));
+        }
+
+        @Override
+        void copy(Object from, Object to) {
+            setLong(to, getLong(from));
+        }
+    }
+
+    static final class DoubleAccessor extends Accessor {
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+
+        final DoubleConverter converter;
+
+        DoubleAccessor(Method getter, Method setter, MethodHandle getterHandle, MethodHandle setterHandle,
+                      DoubleConverter converter) {
+            super(getter, setter);
+            this.converter = converter;
+            this.getterHandle = getterHandle.asType(MethodType.methodType(double.class, Object.class));
+            this.setterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, double.class));
+        }
+
+        double getDouble(Object instance) {
+            try {
+                return (double) getterHandle.invokeExact(instance);
+            } catch (Throwable e) {
+                throw getterFailure(e);
+            }
+        }
+
+        void setDouble(Object instance, double value) {
+            try {
+                setterHandle.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw setterFailure(value, e);
+            }
+        }
+
+        @Override
+        void write(Object instance, String value) {
+            setDouble(instance, converter.parseDouble(value));
+        }
+
+        @Override
+        String read(Object instance) {
+            return converter.formatDouble(getDouble(instance));
+        }
+
+        @Override
+        void copy(Object from, Object to) {
+            setDouble(to, getDouble(from));
+        }
+    }
+
+    static final class BooleanAccessor extends Accessor {
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+
+        final BooleanConverter converter;
+
+        BooleanAccessor(Method getter, Method setter, MethodHandle getterHandle, MethodHandle setterHandle,
+                       BooleanConverter converter) {
+            super(getter, setter);
+            this.converter = converter;
+            this.getterHandle = getterHandle.asType(MethodType.methodType(boolean.class, Object.class));
+            this.setterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+        }
+
+        boolean getBoolean(Object instance) {
+            try {
+                return (boolean) getterHandle.invokeExact(instance);
+            } catch (Throwable e) {
+                throw getterFailure(e);
+            }
+        }
+
+        void setBoolean(Object instance, boolean value) {
+            try {
+                setterHandle.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw setterFailure(value, e);
+            }
+        }
+
+        @Override
+        void write(Object instance, String value) {
+            setBoolean(instance, converter.parseBoolean(value));
+        }
+
+        @Override
+        void write(Object instance, char[] chars, int offset, int length) {
+            if (converter == Converters.BOOLEAN)
+                setBoolean(instance, parseBoolean(chars, offset, length));
+            else
+                write(instance, new String(chars, offset, length));
+        }
+
+        @Override
+        String read(Object instance) {
+            return converter.formatBoolean(getBoolean(instance));
+        }
+
+        @Override
+        void copy(Object from, Object to) {
+            setBoolean(to, getBoolean(from));
+        }
+    }
+
+    static final class ObjectAccessor extends Accessor {
+        private final MethodHandle getterHandle;
+        private final MethodHandle setterHandle;
+        final Converter<Object> converter;
+
+        ObjectAccessor(Method getter, Method setter, MethodHandle getterHandle, MethodHandle setterHandle,
+                       Converter<Object> converter) {
+            super(getter, setter);
+            this.getterHandle = getterHandle.asType(MethodType.methodType(Object.class, Object.class));
+            this.setterHandle = setterHandle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.converter = converter;
+        }
+
+        Object get(Object instance) {
+            try {
+                return (Object) getterHandle.invokeExact(instance);
+            } catch (Throwable e) {
+                throw getterFailure(e);
+            }
+        }
+
+        void set(Object instance, Object value) {
+            try {
+                setterHandle.invokeExact(instance, value);
+            } catch (Throwable e) {
+                throw setterFailure(value, e);
+            }
+        }
+
+        @Override
+        void write(Object instance, String value) {
+            set(instance, converter.parse(value));
+        }
+
+        @Override
+        String read(Object instance) {
+            Object value = get(instance);
+            if (value == null)
+                throw new RuntimeException("The implementation doesn't support null values");
+            return converter.format(value);
+        }
+
+        @Override
+        void copy(Object from, Object to) {
+            set(to, copyOf(get(from)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replaces files atomically: the content goes to a temporary file in the same directory, which is then moved over
+ * the target, so readers see either the old or the new content and a crash never leaves a truncated file.
+ */
+final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    /**
+     * @param sync whether the content should be forced to the storage device before the file is replaced, and the
+     * replacement itself after it
+     */
+    static void write(Path path, byte[] content, boolean sync) throws IOException {
+        Path directory = path.getParent();
+        if (directory != null)
+            Files.createDirectories(directory);
+        // unlike Files.createTempFile, CREATE_NEW applies the default permissions of new files
+        Path temp = path.resolveSibling(path.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                if (sync)
+                    channel.force(true);
+            }
+            copyPermissions(path, temp);
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (sync)
+                syncDirectory(path.toAbsolutePath().getParent());
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The move is recorded in the directory, so without this a crash may bring back the old file even though the
+     * new content has been forced.
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened on some platforms, e.g. Windows
+        }
+    }
+
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        if (Files.notExists(source))
+            return;
+        try {
+            Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+        }
+    }
+}
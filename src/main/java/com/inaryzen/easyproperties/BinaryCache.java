@@ -0,0 +1,339 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sidecar file with the values of a properties file in binary form, so an unchanged file is loaded without reading
+ * and parsing its text.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * int    magic
+ * int    format version
+ * long   fingerprint of the properties class: its name, property names and types, converter providers
+ * long   modification time of the properties file, ns
+ * long   size of the properties file
+ * long   checksum of the properties file content, see {@link PersistedState#checksum}
+ * int    number of entries
+ * entry: int property index, byte type, value:
+ *        int | long | double (bits) | byte (boolean) | int length + chars (String or any other type as text)
+ * </pre>
+ * Values of primitive and String properties are set as they are; values of the other types are stored as text and
+ * converted on load.
+ * <p>
+ * The cache is valid while the properties file has the recorded modification time and size and the class has the
+ * recorded fingerprint. A change that keeps the size is seen by the modification time unless it happens within the
+ * timestamp resolution of the file system from the moment the recorded state has been taken; so if the recorded
+ * modification time is that close to the time the cache has been written, the file is read to compare the checksum.
+ */
+final class BinaryCache {
+    static final int FORMAT_VERSION = 3;
+
+    private static final int MAGIC = 0x45504243; // EPBC
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 4;
+
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte TEXT = 6;
+
+    private static final ClassValue<Long> FINGERPRINTS = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return fingerprint(type, Metadata.indexOf(type));
+        }
+    };
+
+    /**
+     * Properties set from a valid cache and the state of the properties file the cache has been made for.
+     */
+    static final class Loaded {
+        final boolean[] found;
+        final PersistedState fileState;
+        /**
+         * Whether the file has been read to compare the checksum; the cache should be written again, so the
+         * following loads may trust the modification time.
+         */
+        final boolean fileRead;
+
+        private Loaded(boolean[] found, PersistedState fileState, boolean fileRead) {
+            this.found = found;
+            this.fileState = fileState;
+            this.fileRead = fileRead;
+        }
+    }
+
+    private BinaryCache() {
+    }
+
+    /**
+     * @return path of the cache of the properties file: the file name with ".cache" appended
+     */
+    static Path cachePath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".cache");
+    }
+
+    /**
+     * Sets the cached values to the instance. Nothing is set unless the whole cache is valid.
+     * <p>
+     * The cache is read into a direct buffer: a read into a heap buffer goes through a temporary direct buffer
+     * anyway, and unlike a mapping, the buffer does not keep the cache from being replaced.
+     *
+     * @param attributes attributes of the properties file as it is now
+     * @return the properties set from the cache and the state of the file with empty values or null if the cache
+     * is missing or is not valid for the file
+     */
+    static Loaded load(Path cache, Class<?> settingsClass, PropertyIndex index, Path path,
+                       BasicFileAttributes attributes, Object instance) {
+        ByteBuffer buffer;
+        FileTime written;
+        try (FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+            BasicFileAttributes cacheAttributes = Files.readAttributes(cache, BasicFileAttributes.class);
+            written = cacheAttributes.lastModifiedTime();
+            if (cacheAttributes.size() < HEADER_SIZE || cacheAttributes.size() > Integer.MAX_VALUE)
+                return null;
+            buffer = ByteBuffer.allocateDirect((int) cacheAttributes.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole cache
+            }
+            buffer.flip();
+        } catch (IOException e) {
+            // missing or unreadable, the file is parsed instead
+            return null;
+        }
+
+        long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        long checksum;
+        boolean[] found;
+        try {
+            if (buffer.remaining() < HEADER_SIZE
+                    || buffer.getInt() != MAGIC
+                    || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != FINGERPRINTS.get(settingsClass)
+                    || buffer.getLong() != lastModified
+                    || buffer.getLong() != attributes.size())
+                return null;
+            checksum = buffer.getLong();
+            found = validate(buffer.slice(), index);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+        if (found == null)
+            return null;
+        boolean fileRead = written.to(TimeUnit.NANOSECONDS) - lastModified
+                <= PersistedState.TIMESTAMP_RESOLUTION_NANOS;
+        if (fileRead) {
+            try {
+                if (PersistedState.checksum(PropertiesParser.read(path)) != checksum)
+                    return null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        int count = buffer.getInt();
+        for (int n = 0; n < count; n++) {
+            Property property = index.property(buffer.getInt());
+            Accessor accessor = property.getAccessor();
+            switch (buffer.get()) {
+                case INT:
+                    ((Accessor.IntAccessor) accessor).setInt(instance, buffer.getInt());
+                    break;
+                case LONG:
+                    ((Accessor.LongAccessor) accessor).setLong(instance, buffer.getLong());
+                    break;
+                case DOUBLE:
+                    ((Accessor.DoubleAccessor) accessor).setDouble(instance, buffer.getDouble());
+                    break;
+                case BOOLEAN:
+                    ((Accessor.BooleanAccessor) accessor).setBoolean(instance, buffer.get() != 0);
+                    break;
+                case STRING:
+                    ((Accessor.ObjectAccessor) accessor).set(instance, getString(buffer));
+                    break;
+                default:
+                    property.write(instance, getString(buffer));
+            }
+        }
+        return new Loaded(found, PersistedState.of(Collections.<String, String>emptyMap(), attributes, checksum),
+                fileRead);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        char[] chars = new char[buffer.getInt()];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + chars.length * 2);
+        return new String(chars);
+    }
+
+    /**
+     * Checks the entries without applying them, so a broken cache never leaves the instance half-loaded.
+     *
+     * @return flags of the properties in the cache or null if the entries are not valid
+     */
+    private static boolean[] validate(ByteBuffer entries, PropertyIndex index) {
+        boolean[] found = new boolean[index.size()];
+        int count = entries.getInt();
+        for (int n = 0; n < count; n++) {
+            int i = entries.getInt();
+            if (i < 0 || i >= found.length || found[i])
+                return null;
+            found[i] = true;
+
+            byte type = entries.get();
+            if (type != typeOf(index.property(i).getAccessor()))
+                return null;
+            int valueSize;
+            switch (type) {
+                case INT:
+                    valueSize = 4;
+                    break;
+                case LONG:
+                case DOUBLE:
+                    valueSize = 8;
+                    break;
+                case BOOLEAN:
+                    valueSize = 1;
+                    break;
+                default:
+                    int length = entries.getInt();
+                    if (length < 0 || length > entries.remaining() / 2)
+                        return null;
+                    valueSize = length * 2;
+            }
+            if (entries.remaining() < valueSize)
+                return null;
+            entries.position(entries.position() + valueSize);
+        }
+        return found;
+    }
+
+    /**
+     * Replaces the cache with the values; a file that did not exist or has no checksum taken is not cached.
+     *
+     * @param fileState state of the properties file holding the values
+     * @param values property name - value as it is in the file
+     */
+    static void write(Path cache, Class<?> settingsClass, PropertyIndex index, PersistedState fileState,
+                      Map<String, String> values) throws IOException {
+        if (fileState.getLastModified() == null || !fileState.hasChecksum())
+            return;
+
+        int size = HEADER_SIZE;
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            String value = values.get(index.name(i));
+            if (value == null)
+                continue;
+            count++;
+            size += 4 + 1;
+            switch (typeOf(index.property(i).getAccessor())) {
+                case INT:
+                    size += 4;
+                    break;
+                case LONG:
+                case DOUBLE:
+                    size += 8;
+                    break;
+                case BOOLEAN:
+                    size += 1;
+                    break;
+                default:
+                    size += 4 + value.length() * 2;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(FINGERPRINTS.get(settingsClass))
+                .putLong(fileState.getLastModified().to(TimeUnit.NANOSECONDS))
+                .putLong(fileState.getSize())
+                .putLong(fileState.getChecksum())
+                .putInt(count);
+        for (int i = 0; i < index.size(); i++) {
+            String value = values.get(index.name(i));
+            if (value == null)
+                continue;
+            Accessor accessor = index.property(i).getAccessor();
+            byte type = typeOf(accessor);
+            buffer.putInt(i).put(type);
+            switch (type) {
+                case INT:
+                    buffer.putInt(((Accessor.IntAccessor) accessor).converter.parseInt(value));
+                    break;
+                case LONG:
+                    buffer.putLong(((Accessor.LongAccessor) accessor).converter.parseLong(value));
+                    break;
+                case DOUBLE:
+                    buffer.putDouble(((Accessor.DoubleAccessor) accessor).converter.parseDouble(value));
+                    break;
+                case BOOLEAN:
+                    buffer.put((byte) (((Accessor.BooleanAccessor) accessor).converter.parseBoolean(value) ? 1 : 0));
+                    break;
+                default:
+                    buffer.putInt(value.length());
+                    for (int c = 0; c < value.length(); c++)
+                        buffer.putChar(value.charAt(c));
+            }
+        }
+        AtomicFiles.write(cache, buffer.array(), false);
+    }
+
+    private static byte typeOf(Accessor accessor) {
+        if (accessor instanceof Accessor.IntAccessor)
+            return INT;
+        if (accessor instanceof Accessor.LongAccessor)
+            return LONG;
+        if (accessor instanceof Accessor.DoubleAccessor)
+            return DOUBLE;
+        if (accessor instanceof Accessor.BooleanAccessor)
+            return BOOLEAN;
+        if (accessor instanceof Accessor.ObjectAccessor
+                && ((Accessor.ObjectAccessor) accessor).converter == Converters.STRING)
+            return STRING;
+        return TEXT;
+    }
+
+    /**
+     * 64-bit FNV-1a of the class name, the property names and types and the converter providers, which may replace
+     * the converters of any type. Converters are not hashed themselves: the class names of lambdas and anonymous
+     * classes may change from run to run.
+     */
+    private static long fingerprint(Class<?> settingsClass, PropertyIndex index) {
+        long hash = hash(0xcbf29ce484222325L, settingsClass.getName());
+        for (int i = 0; i < index.size(); i++) {
+            Property property = index.property(i);
+            hash = hash(hash, index.name(i));
+            hash = hash(hash, property.getter.getGenericReturnType().getTypeName());
+            hash = hash(hash, Byte.toString(typeOf(property.getAccessor())));
+        }
+        for (String provider : Converters.getDefault().providerNames())
+            hash = hash(hash, provider);
+        return hash;
+    }
+
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        // separator, so "ab" + "c" and "a" + "bc" differ
+        hash ^= 0xff;
+        hash *= 0x100000001b3L;
+        return hash;
+    }
+}
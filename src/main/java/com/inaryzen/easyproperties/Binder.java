@@ -0,0 +1,58 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Properties;
+
+/**
+ * Straight-line replacement of the reflective binding for a single properties class. Implementations are generated
+ * by the easy-properties annotation processor for classes marked with {@link Settings} and registered in
+ * META-INF/services/com.inaryzen.easyproperties.Binder, where they are found by {@link java.util.ServiceLoader}.
+ *
+ * @param <T> properties class
+ */
+public abstract class Binder<T> {
+    /**
+     * @return the properties class the binder is generated for
+     */
+    public abstract Class<T> getSettingsClass();
+
+    /**
+     * Generated binders of classes whose getters carry constraint annotations ({@link Range} etc.) return true; the
+     * constraints of those classes are checked after binding, which takes introspection of the class.
+     */
+    public boolean hasConstraints() {
+        return false;
+    }
+
+    /**
+     * Creates a new instance of the properties class initialized with default values.
+     */
+    public abstract T newInstance();
+
+    /**
+     * Moves the values from {@code properties} to the instance; properties that are not presented are omitted.
+     */
+    public abstract void bind(T instance, Properties properties);
+
+    /**
+     * Moves the values from the instance to {@code properties}.
+     */
+    public abstract void store(T instance, Properties properties);
+
+    /**
+     * @return the value loaded from a file if it is not a NULL value
+     */
+    protected static String checkLoadedValue(String value) {
+        if ("null".equalsIgnoreCase(value))
+            throw new RuntimeException("The implementation doesn't support null values");
+        return value;
+    }
+
+    /**
+     * @return the string representation of the value to store if it is not null
+     */
+    protected static String storedValue(Object value) {
+        if (value == null)
+            throw new RuntimeException("The implementation doesn't support null values");
+        return value.toString();
+    }
+}
@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+/**
+ * {@link Converter} of {@code boolean} values without boxing.
+ */
+public interface BooleanConverter extends Converter<Boolean> {
+    boolean parseBoolean(String value);
+
+    String formatBoolean(boolean value);
+
+    @Override
+    default Boolean parse(String value) {
+        return parseBoolean(value);
+    }
+
+    @Override
+    default String format(Boolean value) {
+        return formatBoolean(value);
+    }
+}
@@ -0,0 +1,18 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Set;
+
+/**
+ * Receives new instances of a watched properties class.
+ *
+ * @param <T> properties class
+ */
+@FunctionalInterface
+public interface ChangeListener<T> {
+    /**
+     * Called from the watching thread after {@code current} has been published.
+     *
+     * @param changedProperties names of the properties whose values differ between the instances
+     */
+    void changed(T previous, T current, Set<String> changedProperties);
+}
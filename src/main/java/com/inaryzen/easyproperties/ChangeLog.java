@@ -0,0 +1,205 @@
+package com.inaryzen.easyproperties;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only log of the changes of a properties file, shared by the processes using the file. Every save appends
+ * the changed keys with the new version of the file, so other processes apply only those keys. The log file is
+ * never replaced, so its locks coordinate the processes: saves hold an exclusive lock, reads hold a shared one.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * int    magic
+ * long   base version: the version of the file when the log was started
+ * record: int payload size, payload: long version, int number of changes,
+ *         change: int key size, key, int value size, value (UTF-8)
+ * </pre>
+ * A record left incomplete by a crash is ignored and overwritten by the next save. When the log grows over
+ * {@link #COMPACTION_THRESHOLD}, it is started again from the current version; readers notice the new base version
+ * and read the whole properties file once.
+ */
+final class ChangeLog implements Closeable {
+    static final int HEADER_SIZE = 4 + 8;
+    static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final int MAGIC = 0x4550434c; // EPCL
+
+    private final Path path;
+    private final FileChannel channel;
+
+    private ChangeLog(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * @return path of the log of the properties file: the file name with ".log" appended
+     */
+    static Path logPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".log");
+    }
+
+    /**
+     * Opens the log, creating an empty one if there is no log yet.
+     */
+    static ChangeLog open(Path path) throws IOException {
+        Path directory = path.getParent();
+        if (directory != null)
+            Files.createDirectories(directory);
+        return new ChangeLog(path, FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Locks the whole log for this process; the lock is released by {@link FileLock#close()} or when the log is
+     * closed. Threads of one process should be serialized before, since a process cannot hold two locks of a file.
+     */
+    FileLock lock(boolean shared) throws IOException {
+        return channel.lock(0, Long.MAX_VALUE, shared);
+    }
+
+    /**
+     * @return whether the log has a header; an empty log has none until the first save
+     */
+    boolean isStarted() throws IOException {
+        return channel.size() >= HEADER_SIZE;
+    }
+
+    /**
+     * @return base version of a started log
+     */
+    long readBase() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC)
+            throw new IOException("Not a change log: " + path);
+        return header.getLong();
+    }
+
+    /**
+     * Reads the complete records that start at the offset.
+     *
+     * @return offset after the last complete record
+     */
+    long read(long offset, List<Record> records) throws IOException {
+        long size = channel.size();
+        if (size <= offset)
+            return offset;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - offset));
+        readFully(buffer, offset);
+        buffer.flip();
+
+        while (buffer.remaining() >= 4) {
+            int start = buffer.position();
+            int payloadSize = buffer.getInt();
+            if (payloadSize < 0 || payloadSize > buffer.remaining())
+                break;
+            ByteBuffer payload = buffer.slice();
+            payload.limit(payloadSize);
+            try {
+                long version = payload.getLong();
+                int count = payload.getInt();
+                Map<String, String> changes = new LinkedHashMap<>();
+                for (int i = 0; i < count; i++)
+                    changes.put(readString(payload), readString(payload));
+                records.add(new Record(version, changes));
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // broken record, the next save overwrites it
+                buffer.position(start);
+                break;
+            }
+            buffer.position(start + 4 + payloadSize);
+        }
+        return offset + buffer.position();
+    }
+
+    /**
+     * Writes the record at the offset, dropping whatever follows it, e.g. an incomplete record.
+     *
+     * @return offset after the record
+     */
+    long append(long offset, long version, Map<String, String> changes) throws IOException {
+        int payloadSize = 8 + 4;
+        Map<byte[], byte[]> encoded = new LinkedHashMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            byte[] key = change.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = change.getValue().getBytes(StandardCharsets.UTF_8);
+            encoded.put(key, value);
+            payloadSize += 4 + key.length + 4 + value.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + payloadSize);
+        buffer.putInt(payloadSize).putLong(version).putInt(encoded.size());
+        for (Map.Entry<byte[], byte[]> change : encoded.entrySet())
+            buffer.putInt(change.getKey().length).put(change.getKey()).putInt(change.getValue().length).put(change.getValue());
+        buffer.flip();
+
+        channel.truncate(offset);
+        writeFully(buffer, offset);
+        return offset + buffer.capacity();
+    }
+
+    /**
+     * Starts the log again from the version, dropping all the records.
+     */
+    void reset(long base) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putLong(base).flip();
+        writeFully(header, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of change log: " + path);
+            position += read;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Changed keys of one save and the version of the file after the save.
+     */
+    static final class Record {
+        final long version;
+        final Map<String, String> changes;
+
+        Record(long version, Map<String, String> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * A layer of property values for {@link PropertiesManager#layered}. Layers are merged in the given order, so a value
+ * of a later layer overrides the values of the earlier ones; the usual order is {@link #defaults}, a shared
+ * {@link #file}, a {@link #hostFile}, {@link #environment} and {@link #systemProperties}.
+ */
+public interface ConfigSource {
+    /**
+     * @param propertyNames names of all the properties of the class
+     * @return property name - value for the properties the source defines
+     */
+    Map<String, String> read(Collection<String> propertyNames);
+
+    /**
+     * Tells whether the values might have changed: equal versions mean equal values. It is called before
+     * {@link #read}, so a change made in between is noticed the next time.
+     *
+     * @return any value that changes when the values of the source change; a constant if they never change
+     */
+    Object version();
+
+    static ConfigSource defaults(Map<String, String> values) {
+        Map<String, String> copy = Collections.unmodifiableMap(new HashMap<>(values));
+        return new ConfigSource() {
+            @Override
+            public Map<String, String> read(Collection<String> propertyNames) {
+                return copy;
+            }
+
+            @Override
+            public Object version() {
+                return copy;
+            }
+        };
+    }
+
+    /**
+     * A .properties file; a missing file defines no values.
+     */
+    static ConfigSource file(String propertiesFile) {
+        Path path = Paths.get(propertiesFile).toAbsolutePath().normalize();
+        return new ConfigSource() {
+            @Override
+            public Map<String, String> read(Collection<String> propertyNames) {
+                Properties properties;
+                try {
+                    properties = PropertiesParser.load(path);
+                } catch (NoSuchFileException e) {
+                    return Collections.emptyMap();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot read file with properties: " + propertiesFile, e);
+                }
+                return PersistedState.toMap(properties);
+            }
+
+            @Override
+            public Object version() {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    return Arrays.asList(attributes.lastModifiedTime(), attributes.size());
+                } catch (NoSuchFileException e) {
+                    return null;
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot read attributes of file : " + propertiesFile, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * A .properties file specific to the host: {@code {host}} in the name is replaced with the local host name, e.g.
+     * {@code hostFile("conf/app-{host}.properties")}.
+     */
+    static ConfigSource hostFile(String propertiesFilePattern) {
+        String hostName;
+        try {
+            hostName = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new RuntimeException("Cannot identify host name", e);
+        }
+        return file(propertiesFilePattern.replace("{host}", hostName));
+    }
+
+    /**
+     * Environment variables named by the prefix and the property name in upper case with dots replaced by
+     * underscores: property {@code db.url} with prefix {@code APP_} is read from {@code APP_DB_URL}.
+     */
+    static ConfigSource environment(String prefix) {
+        Objects.requireNonNull(prefix);
+        return new ConfigSource() {
+            @Override
+            public Map<String, String> read(Collection<String> propertyNames) {
+                Map<String, String> values = new HashMap<>();
+                for (String propertyName : propertyNames) {
+                    String value = System.getenv(prefix + propertyName.toUpperCase(Locale.ROOT).replace('.', '_'));
+                    if (value != null)
+                        values.put(propertyName, value);
+                }
+                return values;
+            }
+
+            @Override
+            public Object version() {
+                // the environment of a running JVM does not change
+                return prefix;
+            }
+        };
+    }
+
+    /**
+     * System properties named by the prefix and the property name: property {@code db.url} with prefix {@code app.}
+     * is read from {@code app.db.url}.
+     */
+    static ConfigSource systemProperties(String prefix) {
+        Objects.requireNonNull(prefix);
+        return new ConfigSource() {
+            @Override
+            public Map<String, String> read(Collection<String> propertyNames) {
+                Map<String, String> values = new HashMap<>();
+                for (String propertyName : propertyNames) {
+                    String value = System.getProperty(prefix + propertyName);
+                    if (value != null)
+                        values.put(propertyName, value);
+                }
+                return values;
+            }
+
+            @Override
+            public Object version() {
+                // system properties can be changed at any moment and have no change counter, so the matching ones are
+                // the version; comparing them is still much cheaper than binding
+                Map<String, String> version = new HashMap<>();
+                Properties properties = System.getProperties();
+                for (String key : properties.stringPropertyNames()) {
+                    if (key.startsWith(prefix))
+                        version.put(key, properties.getProperty(key));
+                }
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,15 @@
+package com.inaryzen.easyproperties;
+
+/**
+ * Converts values of a property type from and to their text in .properties files. Converters of {@code int},
+ * {@code long}, {@code double} and {@code boolean} properties should implement the specialized interfaces
+ * ({@link IntConverter} etc.), so the values are not boxed.
+ *
+ * @param <T> property type
+ * @see ConverterProvider
+ */
+public interface Converter<T> {
+    T parse(String value);
+
+    String format(T value);
+}
@@ -0,0 +1,19 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.reflect.Type;
+
+/**
+ * Supplies converters of property types that are not supported out of the box, or replaces the built-in ones.
+ * Providers are found by {@link java.util.ServiceLoader}: list the implementation in
+ * {@code META-INF/services/com.inaryzen.easyproperties.ConverterProvider}.
+ */
+public interface ConverterProvider {
+    /**
+     * Called once per property when its class is introspected.
+     *
+     * @param type generic type of the property, e.g. {@code List<Duration>}
+     * @param converters resolves converters of other types, e.g. of list elements
+     * @return converter of the type or null if the provider does not support it
+     */
+    Converter<?> find(Type type, Converters converters);
+}
@@ -0,0 +1,287 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+/**
+ * Registry of converters: the ones of the {@link ConverterProvider}s found by {@link ServiceLoader}, then the
+ * built-in ones. Built-in converters support primitive types and their wrappers, String, BigDecimal, Duration, Path,
+ * enums (by name), arrays and Lists of supported types. Elements of arrays and lists are separated by commas; commas
+ * and backslashes within elements are escaped by a backslash, and empty elements are written as "\0", so a single
+ * empty element differs from no elements.
+ * <p>
+ * Converters are resolved once per property when its class is introspected.
+ */
+public final class Converters {
+    static final IntConverter INT = new IntConverter() {
+        @Override
+        public int parseInt(String value) {
+            return Integer.parseInt(value);
+        }
+
+        @Override
+        public String formatInt(int value) {
+            return Integer.toString(value);
+        }
+    };
+
+    static final LongConverter LONG = new LongConverter() {
+        @Override
+        public long parseLong(String value) {
+            return Long.parseLong(value);
+        }
+
+        @Override
+        public String formatLong(long value) {
+            return Long.toString(value);
+        }
+    };
+
+    static final DoubleConverter DOUBLE = new DoubleConverter() {
+        @Override
+        public double parseDouble(String value) {
+            return Double.parseDouble(value);
+        }
+
+        @Override
+        public String formatDouble(double value) {
+            return Double.toString(value);
+        }
+    };
+
+    static final BooleanConverter BOOLEAN = new BooleanConverter() {
+        @Override
+        public boolean parseBoolean(String value) {
+            return Boolean.parseBoolean(value);
+        }
+
+        @Override
+        public String formatBoolean(boolean value) {
+            return Boolean.toString(value);
+        }
+    };
+
+    static final Converter<?> STRING = Converters.<String>converter(s -> s);
+
+    private static final Map<Class<?>, Converter<?>> BUILT_IN = new HashMap<>();
+    static {
+        BUILT_IN.put(String.class, STRING);
+        BUILT_IN.put(Integer.class, INT);
+        BUILT_IN.put(int.class, INT);
+        BUILT_IN.put(Double.class, DOUBLE);
+        BUILT_IN.put(double.class, DOUBLE);
+        BUILT_IN.put(Boolean.class, BOOLEAN);
+        BUILT_IN.put(boolean.class, BOOLEAN);
+        BUILT_IN.put(long.class, LONG);
+        BUILT_IN.put(Long.class, LONG);
+        BUILT_IN.put(float.class, converter(Float::parseFloat));
+        BUILT_IN.put(Float.class, converter(Float::parseFloat));
+        BUILT_IN.put(short.class, converter(Short::parseShort));
+        BUILT_IN.put(Short.class, converter(Short::parseShort));
+        BUILT_IN.put(char.class, converter(s -> s.charAt(0)));
+        BUILT_IN.put(Character.class, converter(s -> s.charAt(0)));
+        BUILT_IN.put(byte.class, converter(Byte::parseByte));
+        BUILT_IN.put(Byte.class, converter(Byte::parseByte));
+        BUILT_IN.put(BigDecimal.class, converter(BigDecimal::new));
+        BUILT_IN.put(Duration.class, converter(Duration::parse));
+        BUILT_IN.put(Path.class, converter(Paths::get));
+    }
+
+    private static final class DefaultHolder {
+        static final Converters INSTANCE = new Converters(ServiceLoader.load(ConverterProvider.class));
+    }
+
+    private final List<ConverterProvider> providers = new ArrayList<>();
+
+    private Converters(Iterable<ConverterProvider> providers) {
+        for (ConverterProvider provider : providers)
+            this.providers.add(provider);
+    }
+
+    /**
+     * @return the registry with the providers found by {@link ServiceLoader} on the first call
+     */
+    public static Converters getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @return converter of the type or null if the type is not supported
+     */
+    public Converter<?> find(Type type) {
+        for (ConverterProvider provider : providers) {
+            Converter<?> converter = provider.find(type, this);
+            if (converter != null)
+                return converter;
+        }
+        return findBuiltIn(type);
+    }
+
+    /**
+     * @return class names of the providers, in the order they are asked for converters
+     */
+    List<String> providerNames() {
+        List<String> names = new ArrayList<>();
+        for (ConverterProvider provider : providers)
+            names.add(provider.getClass().getName());
+        return names;
+    }
+
+    private Converter<?> findBuiltIn(Type type) {
+        if (type instanceof Class) {
+            Class<?> cls = (Class<?>) type;
+            Converter<?> converter = BUILT_IN.get(cls);
+            if (converter != null)
+                return converter;
+            if (cls.isEnum())
+                return enumConverter(cls);
+            if (cls.isArray()) {
+                Converter<?> elementConverter = find(cls.getComponentType());
+                return elementConverter == null ? null : arrayConverter(cls.getComponentType(), elementConverter);
+            }
+        } else if (type instanceof ParameterizedType) {
+            ParameterizedType parameterizedType = (ParameterizedType) type;
+            if (parameterizedType.getRawType() == List.class) {
+                Converter<?> elementConverter = find(parameterizedType.getActualTypeArguments()[0]);
+                return elementConverter == null ? null : listConverter(elementConverter);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return converter that formats values by {@link Object#toString()}
+     */
+    private static <T> Converter<T> converter(Function<String, T> parser) {
+        return new Converter<T>() {
+            @Override
+            public T parse(String value) {
+                return parser.apply(value);
+            }
+
+            @Override
+            public String format(T value) {
+                return value.toString();
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // the class is an enum
+    private static Converter<?> enumConverter(Class<?> enumClass) {
+        return new Converter<Enum>() {
+            @Override
+            public Enum parse(String value) {
+                return Enum.valueOf((Class<Enum>) enumClass, value);
+            }
+
+            @Override
+            public String format(Enum value) {
+                return value.name();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked") // the converter matches the component type
+    private static Converter<?> arrayConverter(Class<?> componentType, Converter<?> elementConverter) {
+        Converter<Object> converter = (Converter<Object>) elementConverter;
+        return new Converter<Object>() {
+            @Override
+            public Object parse(String value) {
+                List<String> elements = split(value);
+                Object array = Array.newInstance(componentType, elements.size());
+                for (int i = 0; i < elements.size(); i++)
+                    Array.set(array, i, converter.parse(elements.get(i)));
+                return array;
+            }
+
+            @Override
+            public String format(Object value) {
+                StringBuilder result = new StringBuilder();
+                int length = Array.getLength(value);
+                for (int i = 0; i < length; i++) {
+                    if (i > 0)
+                        result.append(',');
+                    escape(result, converter.format(Array.get(value, i)));
+                }
+                return result.toString();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked") // the converter matches the element type
+    private static Converter<?> listConverter(Converter<?> elementConverter) {
+        Converter<Object> converter = (Converter<Object>) elementConverter;
+        return new Converter<List<Object>>() {
+            @Override
+            public List<Object> parse(String value) {
+                List<String> elements = split(value);
+                List<Object> list = new ArrayList<>(elements.size());
+                for (String element : elements)
+                    list.add(converter.parse(element));
+                return list;
+            }
+
+            @Override
+            public String format(List<Object> value) {
+                StringBuilder result = new StringBuilder();
+                for (int i = 0; i < value.size(); i++) {
+                    if (i > 0)
+                        result.append(',');
+                    escape(result, converter.format(value.get(i)));
+                }
+                return result.toString();
+            }
+        };
+    }
+
+    /**
+     * Splits a comma-separated value, unescaping the elements; an empty value has no elements, "\0" stands for an
+     * empty element.
+     */
+    static List<String> split(String value) {
+        if (value.isEmpty())
+            return Collections.emptyList();
+        List<String> elements = new ArrayList<>();
+        StringBuilder element = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                if (c != '0')
+                    element.append(c);
+            } else if (c == ',') {
+                elements.add(element.toString());
+                element.setLength(0);
+            } else {
+                element.append(c);
+            }
+        }
+        elements.add(element.toString());
+        return elements;
+    }
+
+    private static void escape(StringBuilder result, String element) {
+        if (element.isEmpty()) {
+            result.append("\\0");
+            return;
+        }
+        for (int i = 0; i < element.length(); i++) {
+            char c = element.charAt(i);
+            if (c == ',' || c == '\\')
+                result.append('\\');
+            result.append(c);
+        }
+    }
+}
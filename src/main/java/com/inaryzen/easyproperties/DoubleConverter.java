@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+/**
+ * {@link Converter} of {@code double} values without boxing.
+ */
+public interface DoubleConverter extends Converter<Double> {
+    double parseDouble(String value);
+
+    String formatDouble(double value);
+
+    @Override
+    default Double parse(String value) {
+        return parseDouble(value);
+    }
+
+    @Override
+    default String format(Double value) {
+        return formatDouble(value);
+    }
+}
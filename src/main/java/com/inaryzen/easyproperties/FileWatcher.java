@@ -0,0 +1,176 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Single daemon thread watching all the files of {@link LiveProperties}. Editors usually produce several events per
+ * save, so a callback runs only after its file has been quiet for {@link #DEBOUNCE_MILLIS}.
+ */
+final class FileWatcher implements Runnable {
+    static final long DEBOUNCE_MILLIS = 100;
+
+    // not monitors: registrations may come from virtual threads
+    private static final ReentrantLock INSTANCE_LOCK = new ReentrantLock();
+    private static volatile FileWatcher instance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    private final Map<Path, Map<Object, Runnable>> callbacks = new ConcurrentHashMap<>();
+    // accessed by the watching thread only
+    private final Map<Path, Long> pending = new HashMap<>();
+
+    private FileWatcher(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    static FileWatcher getInstance() {
+        FileWatcher watcher = instance;
+        if (watcher != null)
+            return watcher;
+        INSTANCE_LOCK.lock();
+        try {
+            if (instance == null) {
+                WatchService watchService;
+                try {
+                    watchService = FileSystems.getDefault().newWatchService();
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot create watch service", e);
+                }
+                watcher = new FileWatcher(watchService);
+                Thread thread = new Thread(watcher, "easy-properties-watcher");
+                thread.setDaemon(true);
+                thread.start();
+                instance = watcher;
+            }
+            return instance;
+        } finally {
+            INSTANCE_LOCK.unlock();
+        }
+    }
+
+    /**
+     * Runs the callback on every change of the file until {@link #unwatch} is called with the same owner.
+     */
+    void watch(Path file, Object owner, Runnable callback) {
+        lock.lock();
+        try {
+            Path directory = file.getParent();
+            if (!directories.containsKey(directory)) {
+                try {
+                    directories.put(directory, directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY));
+                } catch (IOException e) {
+                    throw new RuntimeException("Cannot watch directory: " + directory, e);
+                }
+            }
+            callbacks.computeIfAbsent(file, p -> new ConcurrentHashMap<>()).put(owner, callback);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void unwatch(Path file, Object owner) {
+        lock.lock();
+        try {
+            Map<Object, Runnable> fileCallbacks = callbacks.get(file);
+            if (fileCallbacks == null)
+                return;
+            fileCallbacks.remove(owner);
+            if (!fileCallbacks.isEmpty())
+                return;
+            callbacks.remove(file);
+
+            Path directory = file.getParent();
+            for (Path watched : callbacks.keySet()) {
+                if (watched.getParent().equals(directory))
+                    return;
+            }
+            WatchKey key = directories.remove(directory);
+            if (key != null)
+                key.cancel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = pending.isEmpty()
+                        ? watchService.take()
+                        : watchService.poll(nextDeadline() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collectEvents(key);
+                    key.reset();
+                }
+                fireDue();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // the watching thread is over
+        }
+    }
+
+    private void collectEvents(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        long deadline = System.currentTimeMillis() + DEBOUNCE_MILLIS;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events are lost, consider all the files of the directory changed
+                for (Path file : callbacks.keySet()) {
+                    if (file.getParent().equals(directory))
+                        pending.put(file, deadline);
+                }
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (callbacks.containsKey(file))
+                pending.put(file, deadline);
+        }
+    }
+
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (long deadline : pending.values())
+            next = Math.min(next, deadline);
+        return next;
+    }
+
+    private void fireDue() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, Long>> itr = pending.entrySet().iterator();
+        while (itr.hasNext()) {
+            Map.Entry<Path, Long> entry = itr.next();
+            if (entry.getValue() > now)
+                continue;
+            itr.remove();
+
+            Map<Object, Runnable> fileCallbacks = callbacks.get(entry.getKey());
+            if (fileCallbacks == null)
+                continue;
+            for (Runnable callback : fileCallbacks.values()) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    // a failing listener must not stop watching the other files
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of registering instances of one property class for several files at once: instances bound to the files
+ * that have been loaded and failures of the others.
+ */
+public final class InstanceRegistrationResult<T> {
+    private final Map<String, T> instances;
+    private final Map<String, Throwable> errors;
+
+    InstanceRegistrationResult(Map<String, T> instances, Map<String, Throwable> errors) {
+        this.instances = Collections.unmodifiableMap(instances);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return the instance bound to the file or null if the file has not been loaded
+     */
+    public T get(String propertiesFile) {
+        return instances.get(propertiesFile);
+    }
+
+    /**
+     * @return property file - registered instance, in the order of the files
+     */
+    public Map<String, T> getInstances() {
+        return instances;
+    }
+
+    /**
+     * @return property file - cause of the failure
+     */
+    public Map<String, Throwable> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
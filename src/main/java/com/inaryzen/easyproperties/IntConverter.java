@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+/**
+ * {@link Converter} of {@code int} values without boxing.
+ */
+public interface IntConverter extends Converter<Integer> {
+    int parseInt(String value);
+
+    String formatInt(int value);
+
+    @Override
+    default Integer parse(String value) {
+        return parseInt(value);
+    }
+
+    @Override
+    default String format(Integer value) {
+        return formatInt(value);
+    }
+}
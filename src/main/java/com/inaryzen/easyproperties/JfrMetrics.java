@@ -0,0 +1,130 @@
+package com.inaryzen.easyproperties;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.nio.file.Path;
+
+/**
+ * Emits the measurements as JDK Flight Recorder events; an event that is not enabled in the recording costs a
+ * single check. The class refers to jdk.jfr, so it is loaded by name only when the runtime provides jdk.jfr.
+ */
+final class JfrMetrics implements MetricsListener {
+    @Override
+    public void loaded(Path file, Class<?> settingsClass, long introspectionNanos, long readNanos, long bindNanos) {
+        LoadEvent event = new LoadEvent();
+        if (event.isEnabled()) {
+            event.file = file.toString();
+            event.settingsClass = settingsClass;
+            event.introspection = introspectionNanos;
+            event.read = readNanos;
+            event.bind = bindNanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void saved(Path file, Class<?> settingsClass, long bytes, long nanos) {
+        SaveEvent event = new SaveEvent();
+        if (event.isEnabled()) {
+            event.file = file.toString();
+            event.settingsClass = settingsClass;
+            event.bytes = bytes;
+            event.write = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void conversionFailed(Path file, Class<?> settingsClass, String propertyName, RuntimeException error) {
+        ConversionFailureEvent event = new ConversionFailureEvent();
+        if (event.isEnabled()) {
+            event.file = file.toString();
+            event.settingsClass = settingsClass;
+            event.property = propertyName;
+            event.message = error.getMessage();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void lockAcquired(Path file, long nanos) {
+        LockWaitEvent event = new LockWaitEvent();
+        if (event.isEnabled()) {
+            event.file = file.toString();
+            event.wait = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("com.inaryzen.easyproperties.Load")
+    @Label("Properties Load")
+    @Category("Easy Properties")
+    @StackTrace(false)
+    static final class LoadEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Properties Class")
+        Class<?> settingsClass;
+        @Label("Introspection")
+        @Timespan
+        long introspection;
+        @Label("Read")
+        @Timespan
+        long read;
+        @Label("Bind")
+        @Timespan
+        long bind;
+    }
+
+    @Name("com.inaryzen.easyproperties.Save")
+    @Label("Properties Save")
+    @Category("Easy Properties")
+    @StackTrace(false)
+    static final class SaveEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Properties Class")
+        Class<?> settingsClass;
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+        @Label("Write")
+        @Timespan
+        long write;
+    }
+
+    @Name("com.inaryzen.easyproperties.ConversionFailure")
+    @Label("Properties Conversion Failure")
+    @Category("Easy Properties")
+    static final class ConversionFailureEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Properties Class")
+        Class<?> settingsClass;
+        @Label("Property")
+        String property;
+        @Label("Message")
+        String message;
+    }
+
+    @Name("com.inaryzen.easyproperties.LockWait")
+    @Label("Properties File Lock Wait")
+    @Description("Time spent on waiting for the lock of a properties file; emitted for every lock, so disabled by default")
+    @Category("Easy Properties")
+    @Enabled(false)
+    static final class LockWaitEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Wait")
+        @Timespan
+        long wait;
+    }
+}
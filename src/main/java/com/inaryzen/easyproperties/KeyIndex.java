@@ -0,0 +1,66 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Keys of a file in sorted order with their values. All the keys starting with a prefix form a contiguous range,
+ * found by two binary searches, so a subtree such as "db.pool." is visited without looking at the rest of the file.
+ */
+final class KeyIndex {
+    private final String[] keys;
+    private final String[] values;
+
+    private KeyIndex(String[] keys, String[] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    static KeyIndex of(Properties properties) {
+        String[] keys = properties.stringPropertyNames().toArray(new String[0]);
+        Arrays.sort(keys);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            values[i] = properties.getProperty(keys[i]);
+        return new KeyIndex(keys, values);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    String key(int i) {
+        return keys[i];
+    }
+
+    String value(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return position of the key within [from, to) or -1 if there is no such key
+     */
+    int find(String key, int from, int to) {
+        int i = Arrays.binarySearch(keys, from, to, key);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * @return position of the first key within [from, to) that starts with the prefix or is greater than it
+     */
+    int rangeStart(String prefix, int from, int to) {
+        int i = Arrays.binarySearch(keys, from, to, prefix);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    /**
+     * @return position of the first key within [from, to) that is greater than all the keys starting with the prefix
+     */
+    int rangeEnd(String prefix, int from, int to) {
+        // the least string greater than all the strings starting with the prefix
+        char last = prefix.charAt(prefix.length() - 1);
+        String bound = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+        int i = Arrays.binarySearch(keys, from, to, bound);
+        return i < 0 ? -i - 1 : i;
+    }
+}
@@ -0,0 +1,169 @@
+package com.inaryzen.easyproperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * An instance of a properties class bound to several {@link ConfigSource layers}. The layers are merged once into an
+ * immutable snapshot holding the effective value of every property, and the instance is bound from the snapshot, so
+ * reading a property never looks through the layers. {@link #refresh()} merges the layers again only if one of them
+ * has changed. Constraints of the class are checked on the merged values.
+ *
+ * @param <T> properties class
+ */
+public final class LayeredProperties<T> {
+    /**
+     * Name of the merged layers in {@link ValidationException}s.
+     */
+    private static final String LAYERS = "layered configuration";
+
+    private final Supplier<T> factory;
+    private final Binder<T> binder;
+    // names only if there is a binder
+    private final PropertyIndex index;
+    // null if the class has no constraints
+    private final Validator validator;
+    private final List<String> propertyNames;
+    private final List<ConfigSource> sources;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Snapshot<T> snapshot;
+
+    LayeredProperties(Supplier<T> factory, Binder<T> binder, PropertyIndex index, Validator validator,
+                      List<ConfigSource> sources) {
+        this.factory = factory;
+        this.binder = binder;
+        this.index = index;
+        this.validator = validator;
+        this.sources = Collections.unmodifiableList(new ArrayList<>(sources));
+
+        String[] names = new String[index.size()];
+        for (int i = 0; i < names.length; i++)
+            names[i] = index.name(i);
+        this.propertyNames = Collections.unmodifiableList(Arrays.asList(names));
+
+        this.snapshot = merge(versions());
+    }
+
+    /**
+     * @return the instance bound to the latest merged values; it should not be modified, since it is shared by all
+     * the readers
+     */
+    public T get() {
+        return snapshot.instance;
+    }
+
+    /**
+     * @return the effective value of the property or null if no layer defines it
+     */
+    public String getValue(String propertyName) {
+        int i = index.indexOf(propertyName);
+        return i < 0 ? null : snapshot.values[i];
+    }
+
+    public List<ConfigSource> getSources() {
+        return sources;
+    }
+
+    /**
+     * Merges the layers again and binds a new instance if some layer has changed since the last merge.
+     *
+     * @return whether the instance has been replaced
+     * @throws ValidationException if the merged values violate the constraints of the class; the current instance is
+     * kept then
+     */
+    public boolean refresh() {
+        // not a monitor: the layers may read files, which would pin the carrier of a virtual thread
+        refreshLock.lock();
+        try {
+            Object[] versions = versions();
+            if (Arrays.equals(versions, snapshot.versions))
+                return false;
+            snapshot = merge(versions);
+            return true;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private Object[] versions() {
+        Object[] versions = new Object[sources.size()];
+        for (int i = 0; i < versions.length; i++)
+            versions[i] = sources.get(i).version();
+        return versions;
+    }
+
+    private Snapshot<T> merge(Object[] versions) {
+        String[] values = new String[index.size()];
+        for (ConfigSource source : sources) {
+            for (Map.Entry<String, String> entry : source.read(propertyNames).entrySet()) {
+                int i = index.indexOf(entry.getKey());
+                if (i >= 0)
+                    values[i] = Objects.requireNonNull(entry.getValue());
+            }
+        }
+
+        T instance = factory.get();
+        if (binder != null) {
+            Properties properties = new Properties();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null)
+                    properties.setProperty(index.name(i), values[i]);
+            }
+            binder.bind(instance, properties);
+            if (validator != null) {
+                // the binder fails on the first value that cannot be converted, the constraints are checked after it
+                PropertyIndex constrained = validator.getIndex();
+                boolean[] found = new boolean[constrained.size()];
+                for (int i = 0; i < found.length; i++)
+                    found[i] = properties.containsKey(constrained.name(i));
+                String[] violations = new String[found.length];
+                validator.validate(instance, found, violations);
+                validator.throwIfInvalid(LAYERS, violations);
+            }
+        } else if (validator == null) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null)
+                    index.property(i).write(instance, values[i]);
+            }
+        } else {
+            // like loading a file, all the violations of the merged values are reported at once
+            String[] violations = new String[values.length];
+            boolean[] found = new boolean[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null)
+                    continue;
+                found[i] = true;
+                try {
+                    index.property(i).write(instance, values[i]);
+                } catch (RuntimeException e) {
+                    violations[i] = "cannot convert \"" + values[i] + "\": " + e;
+                }
+            }
+            validator.validate(instance, found, violations);
+            validator.throwIfInvalid(LAYERS, violations);
+        }
+        return new Snapshot<>(versions, values, instance);
+    }
+
+    /**
+     * Versions of the layers, the values merged from them by property index and the instance bound to the values.
+     */
+    private static final class Snapshot<T> {
+        final Object[] versions;
+        final String[] values;
+        final T instance;
+
+        Snapshot(Object[] versions, String[] values, T instance) {
+            this.versions = versions;
+            this.values = values;
+            this.instance = instance;
+        }
+    }
+}
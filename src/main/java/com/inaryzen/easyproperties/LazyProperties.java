@@ -0,0 +1,198 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An instance of a properties class whose properties are bound on first access. Loading only keeps the raw values
+ * of the file in a single char array, indexed by property; a value is converted and set to the instance the first
+ * time the property is requested by {@link #get(String)}, which returns its value, or when {@link #get()} binds all the
+ * remaining ones and returns the instance.
+ * <p>
+ * A property that has not been bound yet holds the default value of the class, so properties should be read and
+ * changed only after they are requested.
+ *
+ * @param <T> properties class
+ */
+public final class LazyProperties<T> {
+    private final PropertiesManager manager;
+    private final Metadata metadata;
+    private final PropertyIndex index;
+    private final T instance;
+
+    // raw values of the file: chars[offsets[i], offsets[i] + lengths[i]) for property i, length -1 if it is missing
+    private final char[] chars;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int loadedCount;
+
+    // not a monitor: properties may be bound from virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final boolean[] bound;
+    private volatile int boundCount;
+
+    LazyProperties(PropertiesManager manager, Metadata metadata, T instance, char[] chars, int[] offsets,
+                   int[] lengths) {
+        this.manager = manager;
+        this.metadata = metadata;
+        this.index = metadata.getIndex();
+        this.instance = instance;
+        this.chars = chars;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.bound = new boolean[lengths.length];
+
+        int loaded = 0;
+        for (int length : lengths) {
+            if (length >= 0)
+                loaded++;
+        }
+        this.loadedCount = loaded;
+    }
+
+    /**
+     * @return the instance with all the properties bound
+     */
+    public T get() {
+        if (boundCount < bound.length) {
+            lock.lock();
+            try {
+                for (int i = 0; i < bound.length; i++)
+                    bind(i);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Binds the property unless it is bound already.
+     *
+     * @param propertyName name of the property, in any case
+     * @return the value of the property, boxed if it is primitive; use {@link #get()} to get the instance
+     * @throws IllegalArgumentException if the class has no such property
+     * @throws RuntimeException if the value in the file cannot be converted; the property stays unbound
+     */
+    public Object get(String propertyName) {
+        return get(PropertyKey.of(settingsClass(), propertyName));
+    }
+
+    /**
+     * Same as {@link #get(String)} for a key resolved in advance.
+     *
+     * @throws IllegalArgumentException if the key belongs to another class
+     */
+    public Object get(PropertyKey<T> key) {
+        if (key.getSettingsClass() != metadata.getSettingsClass())
+            throw new IllegalArgumentException("Property " + key + " does not belong to " + metadata.getSettingsClass());
+        lock.lock();
+        try {
+            bind(key.getIndex());
+            return key.get(instance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the value of the property as it is in the file or null if the file does not define it; the property
+     * is not bound
+     */
+    public String getRawValue(String propertyName) {
+        int i = index.indexOf(propertyName);
+        return i < 0 || lengths[i] < 0 ? null : new String(chars, offsets[i], lengths[i]);
+    }
+
+    public boolean isBound(String propertyName) {
+        int i = index.indexOf(propertyName);
+        if (i < 0)
+            return false;
+        lock.lock();
+        try {
+            return bound[i];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of the properties of the class
+     */
+    public int size() {
+        return bound.length;
+    }
+
+    /**
+     * @return number of the properties defined by the file
+     */
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+
+    /**
+     * @return number of the properties bound so far, whether the file defines them or not
+     */
+    public int getBoundCount() {
+        return boundCount;
+    }
+
+    /**
+     * Binds all the properties and saves the instance to the file.
+     */
+    public void save() {
+        manager.writeProperties(metadata, get());
+    }
+
+    @SuppressWarnings("unchecked") // the instance is of the registered class
+    private Class<T> settingsClass() {
+        return (Class<T>) metadata.getSettingsClass();
+    }
+
+    private void bind(int i) {
+        if (bound[i])
+            return;
+        if (lengths[i] >= 0) {
+            try {
+                index.property(i).write(instance, chars, offsets[i], lengths[i]);
+            } catch (RuntimeException e) {
+                manager.getMetrics().conversionFailed(metadata.getPath(), metadata.getSettingsClass(), index.name(i), e);
+                throw e;
+            }
+        }
+        bound[i] = true;
+        boundCount++;
+    }
+
+    /**
+     * Collects the raw values while the file is parsed.
+     */
+    static final class Builder implements PropertiesParser.ValueConsumer {
+        private char[] chars = new char[1024];
+        private int size;
+        private final int[] offsets;
+        private final int[] lengths;
+
+        Builder(int propertyCount) {
+            offsets = new int[propertyCount];
+            lengths = new int[propertyCount];
+            Arrays.fill(lengths, -1);
+        }
+
+        @Override
+        public void accept(int index, char[] value, int offset, int length) {
+            if (size + length > chars.length)
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, size + length));
+            System.arraycopy(value, offset, chars, size, length);
+            // a repeated key overrides the previous value, like Properties#load does
+            offsets[index] = size;
+            lengths[index] = length;
+            size += length;
+        }
+
+        <T> LazyProperties<T> build(PropertiesManager manager, Metadata metadata, T instance) {
+            return new LazyProperties<>(manager, metadata, instance, Arrays.copyOf(chars, size), offsets, lengths);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.inaryzen.easyproperties;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The latest instance of a properties class that is reloaded on every change of its file. A reload replaces the
+ * instance instead of modifying it, so readers get a consistent view by a single volatile read.
+ *
+ * @param <T> properties class
+ */
+public final class LiveProperties<T> {
+    private final Path path;
+    private final Runnable unregister;
+    private final List<ChangeListener<? super T>> listeners = new CopyOnWriteArrayList<>();
+    private volatile T current;
+
+    /**
+     * @param unregister removes the class from the registry of the manager
+     */
+    LiveProperties(T current, Path path, Runnable unregister) {
+        this.current = current;
+        this.path = path;
+        this.unregister = unregister;
+    }
+
+    /**
+     * @return the latest loaded instance
+     */
+    public T get() {
+        return current;
+    }
+
+    public void addListener(ChangeListener<? super T> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void removeListener(ChangeListener<? super T> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops watching the file and unregisters the class from the manager, so it can be registered again; the current
+     * instance stays available.
+     */
+    public void close() {
+        FileWatcher.getInstance().unwatch(path, this);
+        unregister.run();
+    }
+
+    void publish(T instance, Set<String> changedProperties) {
+        T previous = current;
+        current = instance;
+        if (changedProperties.isEmpty())
+            return;
+        for (ChangeListener<? super T> listener : listeners)
+            listener.changed(previous, instance, changedProperties);
+    }
+}
@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+/**
+ * {@link Converter} of {@code long} values without boxing.
+ */
+public interface LongConverter extends Converter<Long> {
+    long parseLong(String value);
+
+    String formatLong(long value);
+
+    @Override
+    default Long parse(String value) {
+        return parseLong(value);
+    }
+
+    @Override
+    default String format(Long value) {
+        return formatLong(value);
+    }
+}
@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Constrains the value of a property, as it is saved to the file, to match the regular expression entirely; put on
+ * the getter.
+ *
+ * @see ValidationException
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Matches {
+    String value();
+}
@@ -1,95 +1,290 @@
 package com.inaryzen.easyproperties;
 
 import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Function;
+import java.util.Optional;
+import java.util.ServiceLoader;
 
 /**
  * Created by inaryzen on 10/6/2016.
  */
 final class Metadata {
-    private static final Map<Class<?>, Function<String, Object>> CONVERTERS = new HashMap<>();
-    static {
-        CONVERTERS.put(String.class, s -> s);
-        CONVERTERS.put(Integer.class, Integer::parseInt);
-        CONVERTERS.put(int.class, Integer::parseInt);
-        CONVERTERS.put(Double.class, Double::parseDouble);
-        CONVERTERS.put(double.class, Double::parseDouble);
-        CONVERTERS.put(Boolean.class, Boolean::parseBoolean);
-        CONVERTERS.put(boolean.class, Boolean::parseBoolean);
-        CONVERTERS.put(long.class, Long::parseLong);
-        CONVERTERS.put(Long.class, Long::parseLong);
-        CONVERTERS.put(float.class, Float::parseFloat);
-        CONVERTERS.put(Float.class, Float::parseFloat);
-        CONVERTERS.put(short.class, Short::parseShort);
-        CONVERTERS.put(Short.class, Short::parseShort);
-        CONVERTERS.put(char.class, s -> s.charAt(0));
-        CONVERTERS.put(Character.class, s -> s.charAt(0));
-        CONVERTERS.put(byte.class, Byte::parseByte);
-        CONVERTERS.put(Byte.class, Byte::parseByte);
-    }
+    /**
+     * Introspection results shared by all the managers. ClassValue keeps the mapping with the class itself, so it is
+     * safe for classes from different class loaders and goes away when the class is unloaded.
+     */
+    private static final ClassValue<Introspection> MAPPINGS = new ClassValue<Introspection>() {
+        @Override
+        protected Introspection computeValue(Class<?> type) {
+            return introspect(type);
+        }
+    };
+
+    private static final ClassValue<PropertyIndex> INDEXES = new ClassValue<PropertyIndex>() {
+        @Override
+        protected PropertyIndex computeValue(Class<?> type) {
+            return PropertyIndex.of(MAPPINGS.get(type).mapping);
+        }
+    };
+
+    /**
+     * Constraints of the properties; classes without constraints are mapped to {@link Optional#empty()}.
+     */
+    private static final ClassValue<Optional<Validator>> VALIDATORS = new ClassValue<Optional<Validator>>() {
+        @Override
+        protected Optional<Validator> computeValue(Class<?> type) {
+            return Optional.ofNullable(Validator.of(INDEXES.get(type)));
+        }
+    };
+
+    /**
+     * Binders generated by the annotation processor; classes without a binder are mapped to {@link Optional#empty()}.
+     */
+    private static final ClassValue<Optional<Binder<?>>> BINDERS = new ClassValue<Optional<Binder<?>>>() {
+        @Override
+        protected Optional<Binder<?>> computeValue(Class<?> type) {
+            return findBinder(type);
+        }
+    };
 
+    private final Class<?> settingsClass;
     private final String propertyFile;
-    private final Map<String, Property> mapping;
+    private final Path path;
+    private final Binder<?> binder;
+    private volatile PersistedState persistedState = PersistedState.NONE;
+    private long preparationNanos;
 
-    public Metadata(String propertyFile, Map<String, Property> mapping) {
+    public Metadata(Class<?> settingsClass, String propertyFile, Binder<?> binder) {
+        this.settingsClass = settingsClass;
         this.propertyFile = propertyFile;
-        this.mapping = mapping;
+        this.path = Paths.get(propertyFile).toAbsolutePath().normalize();
+        this.binder = binder;
     }
 
+    /**
+     * Classes with a generated binder are not introspected until {@link #getMapping()} is called.
+     */
     public static <T> Metadata prepareMetadata(Class<T> settingsClass, String propertiesFile) {
+        long start = System.nanoTime();
+        Binder<?> binder = BINDERS.get(settingsClass).orElse(null);
+        if (binder == null)
+            MAPPINGS.get(settingsClass);
+        Metadata metadata = new Metadata(settingsClass, propertiesFile, binder);
+        metadata.preparationNanos = System.nanoTime() - start;
+        return metadata;
+    }
+
+    /**
+     * Introspects the class in advance, so the following {@link #prepareMetadata} calls take the cached mapping.
+     */
+    public static void preload(Class<?> settingsClass) {
+        if (!BINDERS.get(settingsClass).isPresent())
+            MAPPINGS.get(settingsClass);
+    }
+
+    /**
+     * @return the generated binder of the class or null if there is no one
+     */
+    @SuppressWarnings("unchecked") // binders are looked up by the class they are generated for
+    public static <T> Binder<T> binderOf(Class<T> settingsClass) {
+        return (Binder<T>) BINDERS.get(settingsClass).orElse(null);
+    }
+
+    /**
+     * @return the properties of the class in a dense array
+     */
+    public static PropertyIndex indexOf(Class<?> settingsClass) {
+        return INDEXES.get(settingsClass);
+    }
+
+    /**
+     * @return the properties of the class holding beans, lists of beans or maps; nested classes are introspected
+     * when they are bound or stored
+     */
+    public static List<NestedProperty> nestedOf(Class<?> settingsClass) {
+        return MAPPINGS.get(settingsClass).nested;
+    }
+
+    /**
+     * Binders are registered as services by the annotation processor, so they are found without reflection.
+     */
+    private static Optional<Binder<?>> findBinder(Class<?> settingsClass) {
+        ClassLoader classLoader = settingsClass.getClassLoader();
+        if (classLoader == null)
+            return Optional.empty();
+
+        for (Binder<?> binder : ServiceLoader.load(Binder.class, classLoader)) {
+            if (binder.getSettingsClass() == settingsClass)
+                return Optional.of(binder);
+        }
+        return Optional.empty();
+    }
+
+    private static Introspection introspect(Class<?> settingsClass) {
         // form map: property name - getter & setter
         Map<String, Property> mapping = new HashMap<>();
         for (Method method : settingsClass.getMethods()) {
             String name = method.getName();
             String propertyName;
             if (name.startsWith("get")) {
-                propertyName = name.substring("get".length()).toLowerCase();
+                propertyName = name.substring("get".length()).toLowerCase(Locale.ROOT);
                 Property property = mapping.get(propertyName);
                 if (property == null)
                     mapping.put(propertyName, property = new Property());
                 property.getter = method;
             } else if (name.startsWith("set")) {
-                propertyName = name.substring("set".length()).toLowerCase();
+                propertyName = name.substring("set".length()).toLowerCase(Locale.ROOT);
                 Property property = mapping.get(propertyName);
                 if (property == null)
                     mapping.put(propertyName, property = new Property());
                 property.setter = method;
             } else if (name.startsWith("is")) {
-                propertyName = name.substring("is".length()).toLowerCase();
+                propertyName = name.substring("is".length()).toLowerCase(Locale.ROOT);
                 Property property = mapping.get(propertyName);
                 if (property == null)
                     mapping.put(propertyName, property = new Property());
                 property.getter = method;
             }
         }
-        // remove incomplete properties
-        Iterator<Property> itr = mapping.values().iterator();
+        // remove incomplete properties, move the ones holding beans to the nested properties
+        List<NestedProperty> nested = new ArrayList<>();
+        Iterator<Map.Entry<String, Property>> itr = mapping.entrySet().iterator();
         while (itr.hasNext()) {
-            Property property = itr.next();
+            Map.Entry<String, Property> entry = itr.next();
+            Property property = entry.getValue();
             if (property.getter == null || property.setter == null) {
                 itr.remove();
-            } else {
-                Class<?> propertyType = property.getter.getReturnType();
-                Function<String, Object> writeConverter = CONVERTERS.get(propertyType);
-                if (writeConverter == null)
-                    throw new RuntimeException("Unsupported property type: " + propertyType);
+                continue;
+            }
 
-                property.setWriteConverter(writeConverter);
-                property.setReadConverter(Objects::toString);
+            Class<?> propertyType = property.getter.getReturnType();
+            Converter<?> converter = Converters.getDefault().find(property.getter.getGenericReturnType());
+            if (converter == null) {
+                NestedProperty nestedProperty = NestedProperty.of(entry.getKey(), property.getter, property.setter);
+                if (nestedProperty == null)
+                    throw new RuntimeException("Unsupported property type: " + propertyType);
+                nested.add(nestedProperty);
+                itr.remove();
+                continue;
             }
+
+            property.setConverter(converter);
+            property.compileAccessor();
         }
-        return new Metadata(propertiesFile, mapping);
+        return new Introspection(Collections.unmodifiableMap(mapping), Collections.unmodifiableList(nested));
     }
 
     public String getPropertyFile() {
         return propertyFile;
     }
 
+    /**
+     * @return absolute normalized path of the property file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return values of the registered instance as they are in the file
+     */
+    public PersistedState getPersistedState() {
+        return persistedState;
+    }
+
+    public void setPersistedState(PersistedState persistedState) {
+        this.persistedState = persistedState;
+    }
+
+    /**
+     * @return time spent by {@link #prepareMetadata}; close to zero when the class has been introspected before
+     */
+    public long getPreparationNanos() {
+        return preparationNanos;
+    }
+
+    public Class<?> getSettingsClass() {
+        return settingsClass;
+    }
+
+    /**
+     * @return the properties of the class that hold values of supported types
+     */
     public Map<String, Property> getMapping() {
-        return mapping;
+        return MAPPINGS.get(settingsClass).mapping;
+    }
+
+    /**
+     * @return the properties of the class that hold beans, lists of beans or maps
+     */
+    public List<NestedProperty> getNested() {
+        return MAPPINGS.get(settingsClass).nested;
+    }
+
+    /**
+     * @return whether the class is bound by {@link #getIndex()} only: it has no generated binder and no nested
+     * properties
+     */
+    public boolean isFlat() {
+        return binder == null && getNested().isEmpty();
+    }
+
+    /**
+     * @return the properties of {@link #getMapping()} in a dense array
+     */
+    public PropertyIndex getIndex() {
+        return INDEXES.get(settingsClass);
+    }
+
+    /**
+     * Classes with a generated binder are introspected for their constraints only if the binder
+     * {@link Binder#hasConstraints() reports} some.
+     *
+     * @return the constraints of the properties or null if there are none
+     */
+    public Validator getValidator() {
+        return validatorOf(settingsClass, binder);
+    }
+
+    /**
+     * @return the constraints of the class or null if there are none
+     */
+    public static Validator validatorOf(Class<?> settingsClass) {
+        return validatorOf(settingsClass, BINDERS.get(settingsClass).orElse(null));
+    }
+
+    private static Validator validatorOf(Class<?> settingsClass, Binder<?> binder) {
+        if (binder != null && !binder.hasConstraints())
+            return null;
+        return VALIDATORS.get(settingsClass).orElse(null);
+    }
+
+    /**
+     * @return the generated binder of the class or null if there is no one
+     */
+    @SuppressWarnings("unchecked") // binders are looked up by the class they are generated for
+    public <T> Binder<T> getBinder() {
+        return (Binder<T>) binder;
+    }
+
+    /**
+     * Properties of a class: the ones of supported types by name and the nested ones.
+     */
+    private static final class Introspection {
+        final Map<String, Property> mapping;
+        final List<NestedProperty> nested;
+
+        Introspection(Map<String, Property> mapping, List<NestedProperty> nested) {
+            this.mapping = mapping;
+            this.nested = nested;
+        }
     }
 }
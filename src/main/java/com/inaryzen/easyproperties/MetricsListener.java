@@ -0,0 +1,80 @@
+package com.inaryzen.easyproperties;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Receives measurements of loads and saves of a {@link PropertiesManager}. All the methods do nothing by default, so
+ * a listener implements only the ones it needs. Methods are called on the thread performing the operation and should
+ * return quickly.
+ *
+ * @see PropertiesManager#setMetricsListener
+ */
+public interface MetricsListener {
+    /**
+     * Measures nothing; the default listener of a manager.
+     */
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * @return listener emitting the measurements as Flight Recorder events (category "Easy Properties") or
+     * {@link #NONE} if the runtime does not provide jdk.jfr
+     */
+    static MetricsListener flightRecorder() {
+        return PropertiesManager.JFR_METRICS;
+    }
+
+    /**
+     * @return listener passing the measurements to this listener, then to the next one
+     */
+    default MetricsListener andThen(MetricsListener next) {
+        Objects.requireNonNull(next);
+        if (this == NONE)
+            return next;
+        if (next == NONE)
+            return this;
+        return new PropertiesManager.CompositeMetrics(this, next);
+    }
+
+    /**
+     * Called after the file has been loaded into a new instance.
+     *
+     * @param introspectionNanos time spent on preparing metadata of the class
+     * @param readNanos time spent on reading the file or its binary cache
+     * @param bindNanos time spent on converting and setting values
+     */
+    default void loaded(Path file, Class<?> settingsClass, long introspectionNanos, long readNanos, long bindNanos) {
+    }
+
+    /**
+     * Called after the instance has been written to the file.
+     *
+     * @param bytes size of the written file
+     * @param nanos time spent on formatting and writing values
+     */
+    default void saved(Path file, Class<?> settingsClass, long bytes, long nanos) {
+    }
+
+    /**
+     * Called when a save has not written the file, since the file contains the same values already.
+     */
+    default void saveSkipped(Path file, Class<?> settingsClass) {
+    }
+
+    /**
+     * Called when a value of the file cannot be set to the instance.
+     *
+     * @param propertyName name of the property or null if it is not known, e.g. for a generated binder
+     */
+    default void conversionFailed(Path file, Class<?> settingsClass, String propertyName, RuntimeException error) {
+    }
+
+    /**
+     * Called when the lock of the file has been acquired for reading or writing.
+     *
+     * @param nanos time spent on waiting for the lock
+     */
+    default void lockAcquired(Path file, long nanos) {
+    }
+}
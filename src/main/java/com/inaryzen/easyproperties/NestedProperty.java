@@ -0,0 +1,274 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Property holding a bean, a list of beans or a map, bound from the keys that start with its name:
+ * <pre>
+ * db.pool.max=10           bean "db" with bean "pool" with property "max"
+ * servers[0].host=a        list of beans "servers"
+ * labels.team=core         map "labels" of values of a supported type
+ * tenants.acme.quota=5     map "tenants" of beans
+ * </pre>
+ * Nested classes are introspected like properties classes; their flat properties are matched by the full key. The
+ * getter, the setter and the constructor of the nested beans are invoked through {@link MethodHandle}s made once.
+ */
+final class NestedProperty {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    enum Kind {
+        BEAN, LIST, MAP
+    }
+
+    final String name;
+    final Method getter;
+    final Method setter;
+    final Kind kind;
+    // class of the bean, of the list elements or of the map values if they are beans; null for maps of plain values
+    final Class<?> beanClass;
+    // converter of the map values if they are not beans
+    final Converter<Object> valueConverter;
+    // (Object) Object
+    private final MethodHandle getterHandle;
+    // (Object, Object) void
+    private final MethodHandle setterHandle;
+    // () Object, creates a bean of beanClass; null for maps of plain values
+    private final MethodHandle constructorHandle;
+
+    private NestedProperty(String name, Method getter, Method setter, Kind kind, Class<?> beanClass,
+                           Converter<Object> valueConverter) {
+        this.name = name;
+        this.getter = getter;
+        this.setter = setter;
+        this.kind = kind;
+        this.beanClass = beanClass;
+        this.valueConverter = valueConverter;
+        try {
+            this.getterHandle = LOOKUP.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class));
+            this.setterHandle = LOOKUP.unreflect(setter)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.constructorHandle = beanClass == null ? null
+                    : LOOKUP.findConstructor(beanClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("Cannot access methods of property: " + name, e);
+        }
+    }
+
+    /**
+     * @return the nested property for the getter/setter pair or null if its type is not a bean, a list of beans or a
+     * map with string keys
+     */
+    @SuppressWarnings("unchecked") // the converter is found for the value type
+    static NestedProperty of(String name, Method getter, Method setter) {
+        Type type = getter.getGenericReturnType();
+        if (type instanceof Class)
+            return isBean((Class<?>) type) ? new NestedProperty(name, getter, setter, Kind.BEAN, (Class<?>) type, null) : null;
+        if (!(type instanceof ParameterizedType))
+            return null;
+
+        ParameterizedType parameterizedType = (ParameterizedType) type;
+        Type[] arguments = parameterizedType.getActualTypeArguments();
+        if (parameterizedType.getRawType() == List.class) {
+            if (arguments[0] instanceof Class && isBean((Class<?>) arguments[0]))
+                return new NestedProperty(name, getter, setter, Kind.LIST, (Class<?>) arguments[0], null);
+        } else if (parameterizedType.getRawType() == Map.class && arguments[0] == String.class) {
+            Converter<?> converter = Converters.getDefault().find(arguments[1]);
+            if (converter != null)
+                return new NestedProperty(name, getter, setter, Kind.MAP, null, (Converter<Object>) converter);
+            if (arguments[1] instanceof Class && isBean((Class<?>) arguments[1]))
+                return new NestedProperty(name, getter, setter, Kind.MAP, (Class<?>) arguments[1], null);
+        }
+        return null;
+    }
+
+    /**
+     * Beans are public concrete classes with a public non-argument constructor, outside of the JDK.
+     */
+    private static boolean isBean(Class<?> cls) {
+        if (cls.isPrimitive() || cls.isArray() || cls.isInterface() || cls.isEnum()
+                || !Modifier.isPublic(cls.getModifiers()) || Modifier.isAbstract(cls.getModifiers())
+                || cls.getName().startsWith("java."))
+            return false;
+        try {
+            cls.getConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets the values of the keys within [from, to) that start with the prefix to the bean and its nested beans.
+     */
+    static void bind(Object bean, KeyIndex keys, String prefix, int from, int to) {
+        Class<?> beanClass = bean.getClass();
+        PropertyIndex index = Metadata.indexOf(beanClass);
+        for (int i = 0; i < index.size(); i++) {
+            int position = keys.find(prefix + index.name(i), from, to);
+            if (position >= 0)
+                index.property(i).write(bean, keys.value(position));
+        }
+        for (NestedProperty nested : Metadata.nestedOf(beanClass))
+            nested.bindValue(bean, keys, prefix, from, to);
+    }
+
+    void bindValue(Object bean, KeyIndex keys, String prefix, int from, int to) {
+        String key = prefix + name;
+        switch (kind) {
+            case BEAN: {
+                String beanPrefix = key + '.';
+                int start = keys.rangeStart(beanPrefix, from, to);
+                int end = keys.rangeEnd(beanPrefix, start, to);
+                if (start == end)
+                    return;
+                // keys missing in the file keep the values of the current bean
+                Object value = get(bean);
+                if (value == null)
+                    value = newBean();
+                bind(value, keys, beanPrefix, start, end);
+                set(bean, value);
+                break;
+            }
+            case LIST: {
+                String listPrefix = key + '[';
+                int start = keys.rangeStart(listPrefix, from, to);
+                int end = keys.rangeEnd(listPrefix, start, to);
+                if (start == end)
+                    return;
+                // elements are ordered by index, "[10]" sorts before "[2]" among the keys
+                TreeMap<Integer, Object> elements = new TreeMap<>();
+                for (int i = start; i < end; ) {
+                    String elementKey = keys.key(i);
+                    int close = elementKey.indexOf("].", listPrefix.length());
+                    if (close < 0)
+                        throw new RuntimeException("Invalid key of list element: " + elementKey);
+                    int elementIndex;
+                    try {
+                        elementIndex = Integer.parseInt(elementKey.substring(listPrefix.length(), close));
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeException("Invalid key of list element: " + elementKey, e);
+                    }
+                    String elementPrefix = elementKey.substring(0, close + 2);
+                    int elementEnd = keys.rangeEnd(elementPrefix, i, end);
+                    Object element = newBean();
+                    bind(element, keys, elementPrefix, i, elementEnd);
+                    elements.put(elementIndex, element);
+                    i = elementEnd;
+                }
+                set(bean, new ArrayList<>(elements.values()));
+                break;
+            }
+            case MAP: {
+                String mapPrefix = key + '.';
+                int start = keys.rangeStart(mapPrefix, from, to);
+                int end = keys.rangeEnd(mapPrefix, start, to);
+                if (start == end)
+                    return;
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = start; i < end; ) {
+                    String entryKey = keys.key(i);
+                    if (beanClass == null) {
+                        // the rest of the key is the map key, whatever it contains
+                        map.put(entryKey.substring(mapPrefix.length()), valueConverter.parse(keys.value(i)));
+                        i++;
+                        continue;
+                    }
+                    int dot = entryKey.indexOf('.', mapPrefix.length());
+                    if (dot < 0)
+                        throw new RuntimeException("Invalid key of map entry: " + entryKey);
+                    String entryPrefix = entryKey.substring(0, dot + 1);
+                    int entryEnd = keys.rangeEnd(entryPrefix, i, end);
+                    Object value = newBean();
+                    bind(value, keys, entryPrefix, i, entryEnd);
+                    map.put(entryKey.substring(mapPrefix.length(), dot), value);
+                    i = entryEnd;
+                }
+                set(bean, map);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Puts the values of the bean and its nested beans to the properties, prefixing their keys.
+     */
+    static void store(Object bean, String prefix, Properties properties) {
+        Class<?> beanClass = bean.getClass();
+        PropertyIndex index = Metadata.indexOf(beanClass);
+        for (int i = 0; i < index.size(); i++)
+            properties.setProperty(prefix + index.name(i), index.property(i).read(bean));
+        for (NestedProperty nested : Metadata.nestedOf(beanClass))
+            nested.storeValue(bean, prefix, properties);
+    }
+
+    void storeValue(Object bean, String prefix, Properties properties) {
+        Object value = get(bean);
+        if (value == null)
+            return;
+        String key = prefix + name;
+        switch (kind) {
+            case BEAN:
+                store(value, key + '.', properties);
+                break;
+            case LIST: {
+                List<?> list = (List<?>) value;
+                for (int i = 0; i < list.size(); i++)
+                    store(checkNotNull(list.get(i), key + '[' + i + ']'), key + '[' + i + "].", properties);
+                break;
+            }
+            case MAP:
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    String entryKey = key + '.' + entry.getKey();
+                    checkNotNull(entry.getValue(), entryKey);
+                    if (beanClass == null)
+                        properties.setProperty(entryKey, valueConverter.format(entry.getValue()));
+                    else
+                        store(entry.getValue(), entryKey + '.', properties);
+                }
+                break;
+        }
+    }
+
+    private static Object checkNotNull(Object value, String key) {
+        if (value == null)
+            throw new RuntimeException("The implementation doesn't support null values: " + key);
+        return value;
+    }
+
+    private Object get(Object bean) {
+        try {
+            return (Object) getterHandle.invokeExact(bean);
+        } catch (Throwable e) {
+            throw new RuntimeException("Cannot invoke method: " + getter, e);
+        }
+    }
+
+    private void set(Object bean, Object value) {
+        try {
+            setterHandle.invokeExact(bean, value);
+        } catch (Throwable e) {
+            throw new RuntimeException("Cannot apply property value; method: " + setter + "; value: " + value, e);
+        }
+    }
+
+    private Object newBean() {
+        try {
+            return (Object) constructorHandle.invokeExact();
+        } catch (Throwable e) {
+            throw new RuntimeException("Cannot create an instance of class: " + beanClass, e);
+        }
+    }
+}
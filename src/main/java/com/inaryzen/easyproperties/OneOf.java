@@ -0,0 +1,19 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Constrains the value of a property, as it is saved to the file, to one of the given values; put on the getter.
+ *
+ * @see ValidationException
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OneOf {
+    String[] value();
+}
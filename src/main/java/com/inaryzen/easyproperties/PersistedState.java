@@ -0,0 +1,239 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Values of a registered instance as they were last loaded from or saved to its file, along with the file's
+ * modification time, size and content checksum at that moment. The modification time and size tell quickly that
+ * the file has changed. They also tell that it has not, unless the file has been modified within the timestamp
+ * resolution of the file system from the moment it was known to have the content: a change in that window may keep
+ * both of them, so the checksum tells then.
+ */
+final class PersistedState {
+    static final PersistedState NONE = new PersistedState(Collections.<String, String>emptyMap(), null, -1, false, 0);
+
+    /**
+     * The coarsest resolution of modification times among common file systems, FAT's 2 seconds.
+     */
+    static final long TIMESTAMP_RESOLUTION_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Map<String, String> values;
+    private final FileTime lastModified;
+    private final long size;
+    private final boolean checksummed;
+    private final long checksum;
+    // the latest time the file is known to have had the content, ms; only grows
+    private volatile long verifiedAt;
+
+    private PersistedState(Map<String, String> values, FileTime lastModified, long size, boolean checksummed,
+                           long checksum) {
+        this(values, lastModified, size, checksummed, checksum, System.currentTimeMillis());
+    }
+
+    private PersistedState(Map<String, String> values, FileTime lastModified, long size, boolean checksummed,
+                           long checksum, long verifiedAt) {
+        this.values = values;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.checksummed = checksummed;
+        this.checksum = checksum;
+        this.verifiedAt = verifiedAt;
+    }
+
+    /**
+     * Reads the attributes of the file; the content is read to take its checksum only if the file has been modified
+     * within the timestamp resolution. Should be called while the file cannot be modified by this JVM.
+     *
+     * @param values property name - value as it is in the file
+     */
+    static PersistedState of(Map<String, String> values, Path path) throws IOException {
+        long now = System.currentTimeMillis();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return new PersistedState(values, null, -1, false, 0);
+        }
+        if (isSettled(attributes.lastModifiedTime(), now))
+            return new PersistedState(values, attributes.lastModifiedTime(), attributes.size(), false, 0, now);
+        byte[] content;
+        try {
+            content = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return new PersistedState(values, null, -1, false, 0);
+        }
+        // a change after the attributes have been read makes the state outdated rather than wrong
+        return new PersistedState(values, attributes.lastModifiedTime(), attributes.size(), true,
+                checksum(ByteBuffer.wrap(content)), now);
+    }
+
+    /**
+     * Should be called while the file cannot be modified by this JVM.
+     *
+     * @param values property name - value as it is in the file
+     * @param content the content of the file from the position to the limit, just read or written
+     */
+    static PersistedState of(Map<String, String> values, Path path, ByteBuffer content) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return new PersistedState(values, null, -1, false, 0);
+        }
+        return new PersistedState(values, attributes.lastModifiedTime(), attributes.size(), true, checksum(content));
+    }
+
+    /**
+     * @param attributes attributes of the file at the moment its content had the checksum
+     */
+    static PersistedState of(Map<String, String> values, BasicFileAttributes attributes, long checksum) {
+        return new PersistedState(values, attributes.lastModifiedTime(), attributes.size(), true, checksum);
+    }
+
+    PersistedState withValues(Map<String, String> values) {
+        return new PersistedState(values, lastModified, size, checksummed, checksum, verifiedAt);
+    }
+
+    /**
+     * @return 64-bit FNV-1a of the bytes from the position to the limit of the buffer; the position is not changed
+     */
+    static long checksum(ByteBuffer content) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = content.position(); i < content.limit(); i++) {
+            hash ^= content.get(i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static Map<String, String> toMap(Properties properties) {
+        Map<String, String> map = new HashMap<>();
+        for (String propertyName : properties.stringPropertyNames())
+            map.put(propertyName, properties.getProperty(propertyName));
+        return map;
+    }
+
+    Map<String, String> getValues() {
+        return values;
+    }
+
+    /**
+     * @return modification time of the file or null if there was no file
+     */
+    FileTime getLastModified() {
+        return lastModified;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    /**
+     * @return whether the checksum of the content has been taken; it is not if the file was old enough
+     */
+    boolean hasChecksum() {
+        return checksummed;
+    }
+
+    /**
+     * @return checksum of the file content, see {@link #checksum(ByteBuffer)}
+     */
+    long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return whether the file still has the content the state was taken from; the file is read only if its
+     * modification time and size are the same and it has been modified within the timestamp resolution from the
+     * moment it was known to have the content
+     */
+    boolean isFileUnchanged(Path path) throws IOException {
+        long now = System.currentTimeMillis();
+        if (!isFileUnchangedByAttributes(path))
+            return false;
+        if (isSettled(lastModified, verifiedAt))
+            return true;
+        if (!checksummed)
+            return false;
+        byte[] content;
+        try {
+            content = Files.readAllBytes(path);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return verified(checksum(ByteBuffer.wrap(content)), now);
+    }
+
+    /**
+     * @param content the current content of the file, already read by the caller
+     */
+    boolean isFileUnchanged(Path path, byte[] content) throws IOException {
+        long now = System.currentTimeMillis();
+        if (!isFileUnchangedByAttributes(path))
+            return false;
+        if (isSettled(lastModified, verifiedAt))
+            return true;
+        return checksummed && verified(checksum(ByteBuffer.wrap(content)), now);
+    }
+
+    /**
+     * @return whether the file still has the modification time and size the state was taken from
+     */
+    boolean isFileUnchangedByAttributes(Path path) throws IOException {
+        if (lastModified == null)
+            return false;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+    }
+
+    /**
+     * @param readAt time the attributes have been found unchanged, before the content was read
+     */
+    private boolean verified(long contentChecksum, long readAt) {
+        if (contentChecksum != checksum)
+            return false;
+        // the following checks may trust the modification time once it is old enough
+        if (readAt > verifiedAt)
+            verifiedAt = readAt;
+        return true;
+    }
+
+    /**
+     * @param knownAt time the file is known to have had the content, ms
+     * @return whether any change of the file after that time gets another modification time
+     */
+    private static boolean isSettled(FileTime lastModified, long knownAt) {
+        return TimeUnit.MILLISECONDS.toNanos(knownAt) - lastModified.to(TimeUnit.NANOSECONDS)
+                > TIMESTAMP_RESOLUTION_NANOS;
+    }
+
+    /**
+     * @return names of the properties whose current values differ from the persisted ones
+     */
+    Set<String> changedProperties(Map<String, String> current) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (!entry.getValue().equals(values.get(entry.getKey())))
+                changed.add(entry.getKey());
+        }
+        return changed;
+    }
+}
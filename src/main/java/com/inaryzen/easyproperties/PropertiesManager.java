@@ -1,93 +1,894 @@
 package com.inaryzen.easyproperties;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
 
 /**
  * Implementation notes:
  * - does not support NULL values
- * - can handle only one instance of an every class.
+ * - registerProperties handles one instance of a class; registerInstance binds any number of instances of a class,
+ *   each to its own file. Introspection results are shared by all of them.
+ * - the registry is lock-free; file I/O is serialized per file, so different files are loaded and saved in parallel.
  * <p>
  * Created by inaryzen on 9/23/2016.
  */
 public class PropertiesManager {
+    /**
+     * Flight Recorder events, if the runtime supports them; see {@link MetricsListener#flightRecorder()}.
+     */
+    static final MetricsListener JFR_METRICS = createJfrMetrics();
+
     private static final PropertiesManager singleton = new PropertiesManager();
 
-    private final Map<Class<?>, Metadata> registry = new HashMap<>();
+    /**
+     * Locks guarding I/O of the property files, striped by path: their number stays fixed however many files are
+     * used, and a few unrelated files share a lock. They are shared by all the managers, so two managers never read
+     * or write the same file at the same time. They are not monitors, so a virtual thread blocked in file I/O while
+     * holding one does not pin its carrier thread. No code holds the locks of two files at once, so the sharing
+     * cannot deadlock.
+     */
+    private static final ReentrantLock[] FILE_LOCKS = new ReentrantLock[256];
+
+    static {
+        for (int i = 0; i < FILE_LOCKS.length; i++)
+            FILE_LOCKS[i] = new ReentrantLock();
+    }
 
-    public static synchronized void save(Object instance) {
+    private final ConcurrentMap<Class<?>, Metadata> registry = new ConcurrentHashMap<>();
+    /**
+     * Instances registered by {@link #registerInstance}; they are found by identity before the class registry is
+     * looked up.
+     */
+    private final ConcurrentMap<InstanceKey, Metadata> instances = new ConcurrentHashMap<>();
+    /**
+     * Asynchronous saves that have not started writing yet; a save requested meanwhile joins the pending one.
+     */
+    private final ConcurrentMap<Metadata, CompletableFuture<Void>> pendingSaves = new ConcurrentHashMap<>();
+    private volatile long saveDelayMillis = 50;
+    private volatile boolean syncWrites;
+    private volatile boolean binaryCache;
+    private volatile MetricsListener metrics = MetricsListener.NONE;
+
+    public static void save(Object instance) {
         singleton.saveProperties(instance);
     }
 
-    public static synchronized <T> T register(Class<T> settingsClass, String propertiesFile) {
+    public static CompletableFuture<Void> saveAsync(Object instance) {
+        return singleton.savePropertiesAsync(instance);
+    }
+
+    public static <T> T register(Class<T> settingsClass, String propertiesFile) {
         return singleton.registerProperties(settingsClass, propertiesFile);
     }
 
-    public <T> T registerProperties(Class<T> settingsClass, String propertiesFile) {
+    /**
+     * Introspects the classes in advance, so registering them later does not pay for reflection. The results are
+     * shared by all the instances of PropertiesManager.
+     */
+    public static void preload(Class<?>... settingsClasses) {
+        preload(Arrays.asList(settingsClasses));
+    }
+
+    public static void preload(Collection<Class<?>> settingsClasses) {
+        for (Class<?> settingsClass : settingsClasses)
+            Metadata.preload(Objects.requireNonNull(settingsClass));
+    }
+
+    public static <T> LiveProperties<T> watch(Class<T> settingsClass, String propertiesFile) {
+        return singleton.watchProperties(settingsClass, propertiesFile);
+    }
+
+    public static RegistrationResult registerAll(Map<Class<?>, String> registrations) {
+        return singleton.registerAllProperties(registrations);
+    }
+
+    public static <T> LazyProperties<T> lazy(Class<T> settingsClass, String propertiesFile) {
+        return singleton.registerLazy(settingsClass, propertiesFile);
+    }
+
+    public static <T> SharedProperties<T> shared(Class<T> settingsClass, String propertiesFile) {
+        return singleton.registerShared(settingsClass, propertiesFile);
+    }
+
+    public static <T> SnapshotProperties<T> snapshot(Class<T> settingsClass, String propertiesFile) {
+        return singleton.registerSnapshot(settingsClass, propertiesFile);
+    }
+
+    /**
+     * Binds an instance of the class to the layers: values of a later layer override the values of the earlier ones.
+     * The instance is read-only: there is no file to save it to.
+     */
+    public static <T> LayeredProperties<T> layered(Class<T> settingsClass, ConfigSource... layers) {
+        return layered(settingsClass, Arrays.asList(layers));
+    }
+
+    public static <T> LayeredProperties<T> layered(Class<T> settingsClass, List<ConfigSource> layers) {
         Objects.requireNonNull(settingsClass);
-        Objects.requireNonNull(propertiesFile);
+        for (ConfigSource layer : layers)
+            Objects.requireNonNull(layer);
 
-        if (registry.containsKey(settingsClass))
-            throw new IllegalArgumentException("Class " + settingsClass + " has been already registered");
+        Binder<T> binder = Metadata.binderOf(settingsClass);
+        PropertyIndex index;
+        if (binder == null) {
+            index = Metadata.indexOf(settingsClass);
+        } else {
+            // the names are taken from the binder, so the class is not introspected
+            Properties defaults = new Properties();
+            binder.store(binder.newInstance(), defaults);
+            index = PropertyIndex.ofNames(defaults.stringPropertyNames());
+        }
+        return new LayeredProperties<>(instanceFactory(settingsClass, binder, null), binder, index,
+                Metadata.validatorOf(settingsClass), layers);
+    }
 
-        Metadata metadata = Metadata.prepareMetadata(settingsClass, propertiesFile);
-        registry.put(settingsClass, metadata);
+    public <T> T registerProperties(Class<T> settingsClass, String propertiesFile) {
+        return registerProperties(settingsClass, propertiesFile, null);
+    }
 
-        T instance = createNewInstance(settingsClass);
+    private <T> T registerProperties(Class<T> settingsClass, String propertiesFile, String callerClassName) {
+        Metadata metadata = registerMetadata(settingsClass, propertiesFile);
+        try {
+            return loadProperties(instanceFactory(settingsClass, metadata.<T>getBinder(), callerClassName), metadata);
+        } catch (RuntimeException e) {
+            // let the class be registered again
+            registry.remove(settingsClass, metadata);
+            throw e;
+        }
+    }
 
-        Path path = Paths.get(propertiesFile);
-        if (Files.notExists(path))
-            return instance;
+    /**
+     * Registers the class like {@link #registerProperties} does and publishes the instance as a snapshot that is not
+     * modified: readers do not need synchronization, updates publish modified copies.
+     */
+    public <T> SnapshotProperties<T> registerSnapshot(Class<T> settingsClass, String propertiesFile) {
+        Metadata metadata = registerMetadata(settingsClass, propertiesFile);
+        try {
+            Supplier<T> factory = instanceFactory(settingsClass, metadata.<T>getBinder(), null);
+            T instance = loadProperties(factory, metadata);
+            return new SnapshotProperties<>(this, instance, from -> copyProperties(metadata, factory, from),
+                    from -> PersistedState.toMap(storeProperties(metadata, from)));
+        } catch (RuntimeException e) {
+            registry.remove(settingsClass, metadata);
+            throw e;
+        }
+    }
 
-        // load properties from disk
-        InputStream inputStream;
+    /**
+     * Loads the file without binding it: each property is converted and set to the instance when it is first
+     * requested through the returned {@link LazyProperties}. Suits classes with many properties of which only a few
+     * are used. The instance is saved by {@link LazyProperties#save()}, which binds all the properties first; the
+     * class is not registered, so it can be loaded lazily any number of times.
+     */
+    public <T> LazyProperties<T> registerLazy(Class<T> settingsClass, String propertiesFile) {
+        Metadata metadata = Metadata.prepareMetadata(Objects.requireNonNull(settingsClass),
+                Objects.requireNonNull(propertiesFile));
+        if (!metadata.getNested().isEmpty())
+            throw new IllegalArgumentException("Class " + settingsClass + " has nested properties, it cannot be bound lazily");
+        // constraints are checked on all the properties at once, which is what lazy binding avoids
+        if (metadata.getValidator() != null)
+            throw new IllegalArgumentException("Class " + settingsClass + " has constraints, it cannot be bound lazily");
+        T instance = instanceFactory(settingsClass, metadata.<T>getBinder(), null).get();
+        PropertyIndex index = metadata.getIndex();
+        LazyProperties.Builder values = new LazyProperties.Builder(index.size());
+
+        Path path = metadata.getPath();
+        ReentrantLock lock = fileLock(path);
+        long waitStart = System.nanoTime();
+        lock.lock();
         try {
-            inputStream = Files.newInputStream(path, StandardOpenOption.READ);
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot read file with properties: " + propertiesFile, e);
+            long readStart = System.nanoTime();
+            metrics.lockAcquired(path, readStart - waitStart);
+            if (Files.notExists(path)) {
+                metadata.setPersistedState(PersistedState.NONE);
+                return values.build(this, metadata, instance);
+            }
+
+            boolean[] found;
+            PersistedState fileState;
+            try {
+                ByteBuffer content = PropertiesParser.read(path);
+                fileState = PersistedState.of(Collections.<String, String>emptyMap(), path, content);
+                found = PropertiesParser.parse(content, index, values);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read file with properties: " + propertiesFile, e);
+            }
+            metrics.loaded(path, settingsClass, metadata.getPreparationNanos(), System.nanoTime() - readStart, 0);
+
+            LazyProperties<T> lazy = values.build(this, metadata, instance);
+            // the values are remembered as they are in the file, so a value written differently is saved once again
+            Map<String, String> persisted = new HashMap<>();
+            for (int i = 0; i < found.length; i++) {
+                if (found[i])
+                    persisted.put(index.name(i), lazy.getRawValue(index.name(i)));
+            }
+            metadata.setPersistedState(fileState.withValues(persisted));
+            return lazy;
+        } finally {
+            lock.unlock();
         }
-        Properties properties = new Properties();
+    }
+
+    /**
+     * Loads an instance of the class from a file shared by several processes: saves through the returned
+     * {@link SharedProperties} succeed only if no other process has saved the file meanwhile, changes of the other
+     * processes are applied by {@link SharedProperties#refresh()}. Like {@link #registerLazy}, the class is not
+     * registered; classes with nested properties cannot be shared.
+     */
+    public <T> SharedProperties<T> registerShared(Class<T> settingsClass, String propertiesFile) {
+        Metadata metadata = Metadata.prepareMetadata(Objects.requireNonNull(settingsClass),
+                Objects.requireNonNull(propertiesFile));
+        if (metadata.getBinder() == null && !metadata.getNested().isEmpty())
+            throw new IllegalArgumentException("Class " + settingsClass + " has nested properties, it cannot be shared");
+        Supplier<T> factory = instanceFactory(settingsClass, metadata.<T>getBinder(), null);
+        return SharedProperties.open(this, metadata, factory, () -> loadProperties(factory, metadata));
+    }
+
+    /**
+     * Registers the classes like {@link #registerProperties} does, preparing metadata and loading files in parallel on
+     * the common fork-join pool. A failure of one class does not affect the others.
+     *
+     * @param registrations property class - property file
+     */
+    public RegistrationResult registerAllProperties(Map<Class<?>, String> registrations) {
+        return registerAllProperties(registrations, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #registerAllProperties(Map)} on the given executor, e.g. a virtual-thread-per-task one.
+     */
+    public RegistrationResult registerAllProperties(Map<Class<?>, String> registrations, Executor executor) {
+        Objects.requireNonNull(registrations);
+        Objects.requireNonNull(executor);
+
+        // the stack of a worker thread does not reach the caller, so it is found here
+        String callerClassName = null;
+        for (Class<?> settingsClass : registrations.keySet()) {
+            if (settingsClass != null && settingsClass.getEnclosingClass() != null) {
+                callerClassName = findCallerClassName();
+                break;
+            }
+        }
+
+        Map<Class<?>, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, String> entry : registrations.entrySet()) {
+            Class<?> settingsClass = entry.getKey();
+            String propertiesFile = entry.getValue();
+            String caller = callerClassName;
+            futures.put(settingsClass, CompletableFuture.supplyAsync(
+                    () -> registerProperties(settingsClass, propertiesFile, caller), executor));
+        }
+
+        Map<Class<?>, Object> instances = new LinkedHashMap<>();
+        Map<Class<?>, Throwable> errors = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, CompletableFuture<Object>> entry : futures.entrySet()) {
+            try {
+                instances.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                errors.put(entry.getKey(), e.getCause());
+            }
+        }
+        return new RegistrationResult(instances, errors);
+    }
+
+    /**
+     * Creates a new instance of the class bound to the file. Unlike {@link #registerProperties}, the class can be
+     * registered any number of times, every instance is saved to its own file. The manager keeps the instance until
+     * it is {@link #unregister unregistered}.
+     */
+    public <T> T registerInstance(Class<T> settingsClass, String propertiesFile) {
+        Metadata metadata = Metadata.prepareMetadata(Objects.requireNonNull(settingsClass),
+                Objects.requireNonNull(propertiesFile));
+        T instance = loadProperties(instanceFactory(settingsClass, metadata.<T>getBinder(), null), metadata);
+        instances.put(new InstanceKey(instance), metadata);
+        return instance;
+    }
+
+    /**
+     * Registers instances of the class for all the files like {@link #registerInstance} does, loading the files in
+     * parallel on the common fork-join pool. At most as many files as there are processors are loaded at a time.
+     * A failure of one file does not affect the others.
+     */
+    public <T> InstanceRegistrationResult<T> registerInstances(Class<T> settingsClass, Collection<String> propertiesFiles) {
+        return registerInstances(settingsClass, propertiesFiles, ForkJoinPool.commonPool(),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #registerInstances(Class, Collection)} on the given executor; at most {@code parallelism}
+     * files are loaded at a time.
+     */
+    public <T> InstanceRegistrationResult<T> registerInstances(Class<T> settingsClass, Collection<String> propertiesFiles,
+                                                               Executor executor, int parallelism) {
+        Objects.requireNonNull(settingsClass);
+        Objects.requireNonNull(executor);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism should be positive: " + parallelism);
+
+        // the class is introspected and its constructor is resolved once, on the calling thread
+        List<Metadata> registrations = new ArrayList<>(propertiesFiles.size());
+        for (String propertiesFile : propertiesFiles)
+            registrations.add(Metadata.prepareMetadata(settingsClass, Objects.requireNonNull(propertiesFile)));
+        if (registrations.isEmpty())
+            return new InstanceRegistrationResult<>(Collections.<String, T>emptyMap(), Collections.<String, Throwable>emptyMap());
+        Supplier<T> factory = instanceFactory(settingsClass, registrations.get(0).<T>getBinder(), null);
+
+        List<T> loaded = new ArrayList<>(Collections.<T>nCopies(registrations.size(), null));
+        Throwable[] failures = forEachBounded(registrations, executor, parallelism, (metadata, i) -> {
+            T instance = loadProperties(factory, metadata);
+            instances.put(new InstanceKey(instance), metadata);
+            loaded.set(i, instance);
+        });
+
+        Map<String, T> result = new LinkedHashMap<>();
+        Map<String, Throwable> errors = new LinkedHashMap<>();
+        for (int i = 0; i < registrations.size(); i++) {
+            String propertiesFile = registrations.get(i).getPropertyFile();
+            if (failures[i] != null)
+                errors.put(propertiesFile, failures[i]);
+            else
+                result.put(propertiesFile, loaded.get(i));
+        }
+        return new InstanceRegistrationResult<>(result, errors);
+    }
+
+    /**
+     * Forgets the instance, so it cannot be saved by the manager anymore. If the instance has been registered by
+     * {@link #registerProperties}, its class can be registered again.
+     */
+    public void unregister(Object instance) {
+        Objects.requireNonNull(instance);
+        if (instances.remove(new InstanceKey(instance)) == null && registry.remove(instance.getClass()) == null)
+            throw new IllegalArgumentException("Class " + instance.getClass() + " has not been registered");
+    }
+
+    /**
+     * Registers the class like {@link #registerProperties} does and keeps the instance up to date with the file:
+     * every change of the file is read into a fresh instance, which replaces the current one in the returned
+     * {@link LiveProperties}. All the watched files share a single watching thread.
+     */
+    public <T> LiveProperties<T> watchProperties(Class<T> settingsClass, String propertiesFile) {
+        Metadata metadata = registerMetadata(settingsClass, propertiesFile);
+        Supplier<T> factory;
+        LiveProperties<T> live;
         try {
-            properties.load(inputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot read file with properties: " + propertiesFile, e);
+            factory = instanceFactory(settingsClass, metadata.<T>getBinder(), null);
+            live = new LiveProperties<>(loadProperties(factory, metadata), metadata.getPath(),
+                    () -> registry.remove(settingsClass, metadata));
+        } catch (RuntimeException e) {
+            registry.remove(settingsClass, metadata);
+            throw e;
         }
 
-        // move data from properties to settings class
-        for (Map.Entry<String, Property> entry : metadata.getMapping().entrySet()) {
-            String propertyName = entry.getKey();
-            Property property = entry.getValue();
+        FileWatcher.getInstance().watch(metadata.getPath(), live, () -> {
+            T previous = live.get();
+            T current;
+            try {
+                current = loadProperties(factory, metadata);
+            } catch (RuntimeException e) {
+                // the file may be in the middle of editing; keep the current instance until the next change
+                return;
+            }
+            live.publish(current, diff(storeProperties(metadata, previous), storeProperties(metadata, current)));
+        });
+        return live;
+    }
 
-            String value = properties.getProperty(propertyName);
+    private Metadata registerMetadata(Class<?> settingsClass, String propertiesFile) {
+        Objects.requireNonNull(settingsClass);
+        Objects.requireNonNull(propertiesFile);
 
-            // if there is no such property, just omit it
-            if (value == null)
-                continue;
+        Metadata metadata = Metadata.prepareMetadata(settingsClass, propertiesFile);
+        if (registry.putIfAbsent(settingsClass, metadata) != null)
+            throw new IllegalArgumentException("Class " + settingsClass + " has been already registered");
+        return metadata;
+    }
+
+    private <T> T loadProperties(Supplier<T> factory, Metadata metadata) {
+        T instance = factory.get();
+
+        String propertiesFile = metadata.getPropertyFile();
+        Path path = metadata.getPath();
+        Binder<T> binder = metadata.getBinder();
+        // classes with a binder or nested properties are bound from all the keys of the file
+        boolean flat = metadata.isFlat();
+        PropertyIndex index = flat ? metadata.getIndex() : null;
+        // with constraints, values that cannot be converted are reported along with the other violations
+        Validator validator = metadata.getValidator();
+        String[] violations = validator == null ? null : new String[metadata.getIndex().size()];
 
-            property.write(instance, value);
+        // load properties from disk
+        Properties properties = null;
+        boolean[] found = null;
+        boolean cacheUpToDate = false;
+        PersistedState fileState;
+        long readNanos;
+        long bindNanos = 0;
+        ReentrantLock lock = fileLock(path);
+        long waitStart = System.nanoTime();
+        lock.lock();
+        try {
+            long readStart = System.nanoTime();
+            metrics.lockAcquired(path, readStart - waitStart);
+            if (Files.notExists(path)) {
+                if (validator != null) {
+                    validator.validate(instance, new boolean[violations.length], violations);
+                    validator.throwIfInvalid(propertiesFile, violations);
+                }
+                metadata.setPersistedState(PersistedState.NONE);
+                return instance;
+            }
+
+            try {
+                // taken before the content is read, so a concurrent change makes the state outdated rather than wrong
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                BinaryCache.Loaded loaded = null;
+                if (binaryCache && flat) {
+                    loaded = BinaryCache.load(BinaryCache.cachePath(path), metadata.getSettingsClass(), index, path,
+                            attributes, instance);
+                }
+                if (loaded != null) {
+                    found = loaded.found;
+                    fileState = loaded.fileState;
+                    cacheUpToDate = !loaded.fileRead;
+                    readNanos = System.nanoTime() - readStart;
+                } else {
+                    ByteBuffer content = PropertiesParser.read(path);
+                    fileState = PersistedState.of(Collections.<String, String>emptyMap(), attributes,
+                            PersistedState.checksum(content));
+                    if (!flat) {
+                        properties = PropertiesParser.load(content);
+                        readNanos = System.nanoTime() - readStart;
+                    } else {
+                        readNanos = System.nanoTime() - readStart;
+                        long bindStart = System.nanoTime();
+                        // values go straight from the file to the settings class; unknown keys are skipped
+                        found = PropertiesParser.parse(content, index, (i, chars, offset, length) -> {
+                            try {
+                                index.property(i).write(instance, chars, offset, length);
+                            } catch (RuntimeException e) {
+                                metrics.conversionFailed(path, metadata.getSettingsClass(), index.name(i), e);
+                                if (violations == null)
+                                    throw e;
+                                violations[i] = "cannot convert \"" + new String(chars, offset, length) + "\": " + e;
+                            }
+                        });
+                        bindNanos = System.nanoTime() - bindStart;
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read file with properties: " + propertiesFile, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (!flat) {
+            long bindStart = System.nanoTime();
+            try {
+                if (binder != null) {
+                    binder.bind(instance, properties);
+                } else {
+                    KeyIndex keys = KeyIndex.of(properties);
+                    NestedProperty.bind(instance, keys, "", 0, keys.size());
+                }
+            } catch (RuntimeException e) {
+                metrics.conversionFailed(path, metadata.getSettingsClass(), null, e);
+                throw e;
+            }
+            bindNanos = System.nanoTime() - bindStart;
+            if (validator != null) {
+                PropertyIndex constrained = metadata.getIndex();
+                found = new boolean[constrained.size()];
+                for (int i = 0; i < found.length; i++)
+                    found[i] = properties.containsKey(constrained.name(i));
+            }
         }
+        if (validator != null) {
+            validator.validate(instance, found, violations);
+            validator.throwIfInvalid(propertiesFile, violations);
+        }
+
+        // remember the loaded values the way they would be saved; missing properties are left out, so they are dirty
+        Map<String, String> persisted;
+        if (!flat) {
+            persisted = PersistedState.toMap(storeProperties(metadata, instance));
+            persisted.keySet().retainAll(properties.stringPropertyNames());
+        } else {
+            persisted = new HashMap<>();
+            for (int i = 0; i < found.length; i++) {
+                if (found[i])
+                    persisted.put(index.name(i), index.property(i).read(instance));
+            }
+        }
+        PersistedState persistedState = fileState.withValues(persisted);
+        metadata.setPersistedState(persistedState);
+        if (binaryCache && flat && !cacheUpToDate) {
+            // under the lock, so a concurrent save does not find its cache replaced by an outdated one
+            lock.lock();
+            try {
+                if (persistedState.isFileUnchangedByAttributes(path))
+                    writeCache(metadata, persistedState);
+            } catch (IOException e) {
+                // the next load parses the file
+            } finally {
+                lock.unlock();
+            }
+        }
+        metrics.loaded(path, metadata.getSettingsClass(), metadata.getPreparationNanos(), readNanos, bindNanos);
         return instance;
     }
 
     public void saveProperties(Object instance) {
         Objects.requireNonNull(instance);
+        writeProperties(getMetadata(instance), instance);
+    }
+
+    /**
+     * Saves all the instances like {@link #saveProperties} does, in parallel on the common fork-join pool. At most as
+     * many files as there are processors are written at a time, so memory for the file contents stays bounded
+     * whatever the number of instances is.
+     *
+     * @throws RuntimeException if some instances have not been saved; the other instances are saved anyway
+     */
+    public void saveAllProperties(Collection<?> settingsInstances) {
+        saveAllProperties(settingsInstances, ForkJoinPool.commonPool(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #saveAllProperties(Collection)} on the given executor; at most {@code parallelism} files are
+     * written at a time.
+     */
+    public void saveAllProperties(Collection<?> settingsInstances, Executor executor, int parallelism) {
+        Objects.requireNonNull(executor);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism should be positive: " + parallelism);
+
+        List<Object> saved = new ArrayList<>(settingsInstances);
+        List<Metadata> registrations = new ArrayList<>(saved.size());
+        for (Object instance : saved)
+            registrations.add(getMetadata(Objects.requireNonNull(instance)));
+
+        Throwable[] failures = forEachBounded(registrations, executor, parallelism,
+                (metadata, i) -> writeProperties(metadata, saved.get(i)));
+
+        RuntimeException exception = null;
+        for (Throwable failure : failures) {
+            if (failure == null)
+                continue;
+            if (exception == null)
+                exception = new RuntimeException("Cannot save properties of " + saved.size() + " instances", failure);
+            else
+                exception.addSuppressed(failure);
+        }
+        if (exception != null)
+            throw exception;
+    }
+
+    /**
+     * Saves the instance on a background thread after {@link #setSaveDelay save delay}. Saves of the same instance
+     * requested before the write starts are collapsed into that write and share the returned future; the values are
+     * read when the write starts.
+     */
+    public CompletableFuture<Void> savePropertiesAsync(Object instance) {
+        Objects.requireNonNull(instance);
+        Metadata metadata = getMetadata(instance);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> pending = pendingSaves.putIfAbsent(metadata, future);
+        if (pending != null)
+            return pending;
+
+        SaveExecutor.INSTANCE.schedule(() -> {
+            // saves requested from now on need another write
+            pendingSaves.remove(metadata, future);
+            try {
+                writeProperties(metadata, instance);
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }, saveDelayMillis, TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * Sets how long asynchronous saves wait for other saves of the same instance; 50 ms by default.
+     */
+    public void setSaveDelay(long saveDelayMillis) {
+        if (saveDelayMillis < 0)
+            throw new IllegalArgumentException("Negative save delay: " + saveDelayMillis);
+        this.saveDelayMillis = saveDelayMillis;
+    }
+
+    /**
+     * Sets whether saved files are forced to the storage device before they replace the previous version; disabled
+     * by default.
+     */
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
 
+    /**
+     * Sets whether the values are cached in a binary file next to the properties file (its name with ".cache"
+     * appended). While the properties file has the same modification time and size, it is loaded from the cache
+     * without reading it; disabled by default. Classes with a generated binder or nested properties are not cached.
+     */
+    public void setBinaryCache(boolean binaryCache) {
+        this.binaryCache = binaryCache;
+    }
+
+    /**
+     * Sets the listener receiving timings of loads and saves, numbers of written bytes, conversion failures and time
+     * spent on waiting for file locks; {@link MetricsListener#NONE}, which measures nothing, by default. Flight
+     * Recorder events are emitted by {@link MetricsListener#flightRecorder()}, which can be combined with another
+     * listener by {@link MetricsListener#andThen}.
+     */
+    public void setMetricsListener(MetricsListener listener) {
+        Objects.requireNonNull(listener);
+        metrics = listener;
+    }
+
+    MetricsListener getMetrics() {
+        return metrics;
+    }
+
+    private Metadata getMetadata(Object instance) {
+        if (!instances.isEmpty()) {
+            Metadata metadata = instances.get(new InstanceKey(instance));
+            if (metadata != null)
+                return metadata;
+        }
         Class<?> settingsClass = instance.getClass();
         Metadata metadata = registry.get(settingsClass);
+        if (metadata == null)
+            throw new IllegalArgumentException("Class " + settingsClass + " has not been registered");
+        return metadata;
+    }
+
+    /**
+     * @return whether the instance has values that differ from its file
+     */
+    public boolean isDirty(Object instance) {
+        return !changedProperties(instance).isEmpty();
+    }
+
+    /**
+     * @return names of the properties whose values differ from the values in the file, as they were last loaded or
+     * saved by this manager
+     */
+    public Set<String> changedProperties(Object instance) {
+        Objects.requireNonNull(instance);
+        Metadata metadata = getMetadata(instance);
+        return metadata.getPersistedState().changedProperties(PersistedState.toMap(storeProperties(metadata, instance)));
+    }
+
+    /**
+     * Writes the file unless it is known to contain the same values already.
+     */
+    void writeProperties(Metadata metadata, Object instance) {
+        String propertyFile = metadata.getPropertyFile();
+        Path path = metadata.getPath();
+        byte[] content;
+        ReentrantLock lock = fileLock(path);
+        long waitStart = System.nanoTime();
+        lock.lock();
+        long start = System.nanoTime();
+        long waitNanos = start - waitStart;
+        try {
+            metrics.lockAcquired(path, waitNanos);
+            // under the lock, so the persisted state is not replaced by a concurrent save between the check and the
+            // write
+            Map<String, String> values = PersistedState.toMap(storeProperties(metadata, instance));
+            PersistedState persisted = metadata.getPersistedState();
+            try {
+                if (persisted.getValues().equals(values) && persisted.isFileUnchanged(path)) {
+                    metrics.saveSkipped(path, metadata.getSettingsClass());
+                    return;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot read attributes of file : " + propertyFile, e);
+            }
+
+            // the previous content is patched, so comments, the order of the keys and unchanged lines are kept
+            byte[] original;
+            try {
+                original = Files.readAllBytes(path);
+            } catch (NoSuchFileException e) {
+                original = new byte[0];
+            }
+            Map<String, String> inFile = persisted.isFileUnchanged(path, original)
+                    ? persisted.getValues() : Collections.<String, String>emptyMap();
+            content = PropertiesWriter.write(original, values, inFile);
+            AtomicFiles.write(path, content, syncWrites);
+            PersistedState persistedState = PersistedState.of(values, path, ByteBuffer.wrap(content));
+            metadata.setPersistedState(persistedState);
+            if (binaryCache && metadata.isFlat())
+                writeCache(metadata, persistedState);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write to file : " + propertyFile, e);
+        } finally {
+            lock.unlock();
+        }
+        metrics.saved(path, metadata.getSettingsClass(), content.length, System.nanoTime() - start);
+    }
+
+    /**
+     * The cache is only an optimization: it records the state of the file it has been made for, so a failed or
+     * outdated write is detected and ignored by the next load.
+     */
+    private static void writeCache(Metadata metadata, PersistedState persistedState) {
+        try {
+            BinaryCache.write(BinaryCache.cachePath(metadata.getPath()), metadata.getSettingsClass(),
+                    metadata.getIndex(), persistedState, persistedState.getValues());
+        } catch (IOException | RuntimeException e) {
+            // the next load parses the file
+        }
+    }
+
+    /**
+     * Daemon threads performing asynchronous saves; created on the first asynchronous save.
+     */
+    private static final class SaveExecutor {
+        static final ScheduledExecutorService INSTANCE = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "easy-properties-save");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
 
+    /**
+     * Flight Recorder classes are loaded by name, so the library runs on JVMs without jdk.jfr.
+     */
+    private static MetricsListener createJfrMetrics() {
+        try {
+            Class.forName("jdk.jfr.Event", false, PropertiesManager.class.getClassLoader());
+            return (MetricsListener) Class.forName(PropertiesManager.class.getPackage().getName() + ".JfrMetrics")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // no Flight Recorder in the runtime
+            return MetricsListener.NONE;
+        }
+    }
+
+    /**
+     * Passes the measurements to two listeners, see {@link MetricsListener#andThen}.
+     */
+    static final class CompositeMetrics implements MetricsListener {
+        private final MetricsListener first;
+        private final MetricsListener second;
+
+        CompositeMetrics(MetricsListener first, MetricsListener second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void loaded(Path file, Class<?> settingsClass, long introspectionNanos, long readNanos, long bindNanos) {
+            first.loaded(file, settingsClass, introspectionNanos, readNanos, bindNanos);
+            second.loaded(file, settingsClass, introspectionNanos, readNanos, bindNanos);
+        }
+
+        @Override
+        public void saved(Path file, Class<?> settingsClass, long bytes, long nanos) {
+            first.saved(file, settingsClass, bytes, nanos);
+            second.saved(file, settingsClass, bytes, nanos);
+        }
+
+        @Override
+        public void saveSkipped(Path file, Class<?> settingsClass) {
+            first.saveSkipped(file, settingsClass);
+            second.saveSkipped(file, settingsClass);
+        }
+
+        @Override
+        public void conversionFailed(Path file, Class<?> settingsClass, String propertyName, RuntimeException error) {
+            first.conversionFailed(file, settingsClass, propertyName, error);
+            second.conversionFailed(file, settingsClass, propertyName, error);
+        }
+
+        @Override
+        public void lockAcquired(Path file, long nanos) {
+            first.lockAcquired(file, nanos);
+            second.lockAcquired(file, nanos);
+        }
+    }
+
+    /**
+     * Key of {@link #instances}: instances are compared by identity, whatever their equals is.
+     */
+    private static final class InstanceKey {
+        private final Object instance;
+
+        InstanceKey(Object instance) {
+            this.instance = instance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof InstanceKey && ((InstanceKey) o).instance == instance;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(instance);
+        }
+    }
+
+    /**
+     * Performs the action for every item on at most {@code parallelism} tasks of the executor; a task takes the next
+     * item when it is done with the previous one, so no more than {@code parallelism} items are in progress at a time.
+     *
+     * @return failures by the position of the item; null for the items processed successfully
+     */
+    private static <T> Throwable[] forEachBounded(List<T> items, Executor executor, int parallelism,
+                                                  ObjIntConsumer<T> action) {
+        Throwable[] failures = new Throwable[items.size()];
+        AtomicInteger next = new AtomicInteger();
+        Runnable task = () -> {
+            int i;
+            while ((i = next.getAndIncrement()) < items.size()) {
+                try {
+                    action.accept(items.get(i), i);
+                } catch (Throwable e) {
+                    failures[i] = e;
+                }
+            }
+        };
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[Math.min(parallelism, items.size())];
+        for (int i = 0; i < tasks.length; i++)
+            tasks[i] = CompletableFuture.runAsync(task, executor);
+        CompletableFuture.allOf(tasks).join();
+        return failures;
+    }
+
+    static ReentrantLock fileLock(Path path) {
+        int hash = path.hashCode();
+        // the high bits take part, like in HashMap
+        return FILE_LOCKS[(hash ^ (hash >>> 16)) & (FILE_LOCKS.length - 1)];
+    }
+
+    static Properties storeProperties(Metadata metadata, Object instance) {
         Properties properties = new Properties();
+        Binder<Object> binder = metadata.getBinder();
+        if (binder != null) {
+            binder.store(instance, properties);
+            return properties;
+        }
+
         for (Map.Entry<String, Property> entry : metadata.getMapping().entrySet()) {
             String propertyName = entry.getKey();
             Property property = entry.getValue();
@@ -95,25 +896,63 @@ public class PropertiesManager {
             String value = property.read(instance);
             properties.setProperty(propertyName, value);
         }
+        for (NestedProperty nested : metadata.getNested())
+            nested.storeValue(instance, "", properties);
+        return properties;
+    }
 
-        String propertyFile = metadata.getPropertyFile();
-        Path path = Paths.get(propertyFile);
-        OutputStream outputStream;
-        try {
-            outputStream = Files.newOutputStream(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot write to file : " + propertyFile, e);
+    /**
+     * @return a new instance with the property values of the given one
+     */
+    private static <T> T copyProperties(Metadata metadata, Supplier<T> factory, T from) {
+        T copy = factory.get();
+        Binder<T> binder = metadata.getBinder();
+        if (binder != null) {
+            Properties properties = new Properties();
+            binder.store(from, properties);
+            binder.bind(copy, properties);
+            return copy;
         }
 
-        try {
-            properties.store(outputStream, "");
-        } catch (IOException e) {
-            throw new RuntimeException("Cannot write to file : " + propertyFile, e);
+        PropertyIndex index = metadata.getIndex();
+        for (int i = 0; i < index.size(); i++)
+            index.property(i).copy(from, copy);
+        if (!metadata.getNested().isEmpty()) {
+            // nested beans are copied through their values, so the copy shares no beans with the original
+            Properties properties = new Properties();
+            for (NestedProperty nested : metadata.getNested())
+                nested.storeValue(from, "", properties);
+            KeyIndex keys = KeyIndex.of(properties);
+            for (NestedProperty nested : metadata.getNested())
+                nested.bindValue(copy, keys, "", 0, keys.size());
         }
+        return copy;
     }
 
-    @SuppressWarnings("unchecked") // cast of the result
-    private static <T> T createNewInstance(Class<T> settingsClass) {
+    /**
+     * @return names of the properties whose values differ
+     */
+    private static Set<String> diff(Properties previous, Properties current) {
+        Set<String> changed = new HashSet<>();
+        for (String propertyName : current.stringPropertyNames()) {
+            if (!current.getProperty(propertyName).equals(previous.getProperty(propertyName)))
+                changed.add(propertyName);
+        }
+        return changed;
+    }
+
+    /**
+     * The constructor is resolved once, so instances can be created later from any thread.
+     */
+    private static <T> Supplier<T> instanceFactory(Class<T> settingsClass, Binder<T> binder, String callerClassName) {
+        if (binder != null)
+            return binder::newInstance;
+
+        Constructor<?> defaultConstructor = findDefaultConstructor(settingsClass, callerClassName);
+        return () -> createNewInstance(settingsClass, defaultConstructor);
+    }
+
+    private static Constructor<?> findDefaultConstructor(Class<?> settingsClass, String callerClassName) {
         Constructor<?>[] declaredConstructors = settingsClass.getDeclaredConstructors();
         Constructor<?> defaultConstructor = null;
         for (Constructor<?> declaredConstructor : declaredConstructors) {
@@ -127,8 +966,12 @@ public class PropertiesManager {
                     "constructor to the class 2) if the class is nested, define it as a static one.");
         }
 
-        handleNestedPrivateClass(settingsClass, defaultConstructor);
+        handleNestedPrivateClass(settingsClass, defaultConstructor, callerClassName);
+        return defaultConstructor;
+    }
 
+    @SuppressWarnings("unchecked") // cast of the result
+    private static <T> T createNewInstance(Class<T> settingsClass, Constructor<?> defaultConstructor) {
         Object result;
         try {
             result = defaultConstructor.newInstance();
@@ -143,26 +986,14 @@ public class PropertiesManager {
      * In accordance with JLS (6.6.1. Determining Accessibility) we are allowed to access a private constructor of
      * a nested class if the access occurs from within the body of the top level class. Constructor#newInstance does not
      * respect this rule, so we need to handle it be ourselves using AccessibleObject#setAccessible.
+     *
+     * @param callerClassName name of the class that called PropertiesManager or null to find it in the current stack
      */
-    private static <T> void handleNestedPrivateClass(Class<T> settingsClass, Constructor<?> defaultConstructor) {
+    private static void handleNestedPrivateClass(Class<?> settingsClass, Constructor<?> defaultConstructor,
+                                                 String callerClassName) {
         if (settingsClass.getEnclosingClass() != null && Modifier.isPrivate(defaultConstructor.getModifiers())) {
-            StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-            String managerClassName = PropertiesManager.class.getName();
-            String callerClassName = null;
-            boolean gate = false;
-            // looking for the class in the stack that comes after PropertiesManager part
-            // 1) finds the beginning of PropertiesManager part (gate == false)
-            // 2) finds the first class after (gate == true)
-            for (StackTraceElement stackTraceElement : stackTrace) {
-                String className = stackTraceElement.getClassName();
-                if (!gate) {
-                    if (managerClassName.equals(className))
-                        gate = true;
-                } else if (!managerClassName.equals(className)) {
-                    callerClassName = className;
-                    break;
-                }
-            }
+            if (callerClassName == null)
+                callerClassName = findCallerClassName();
             if (callerClassName == null)
                 throw new RuntimeException("Cannot identify caller's name");
 
@@ -181,4 +1012,26 @@ public class PropertiesManager {
             }
         }
     }
+
+    /**
+     * @return name of the first class in the stack that comes after PropertiesManager part or null if there is no one
+     */
+    private static String findCallerClassName() {
+        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
+        String managerClassName = PropertiesManager.class.getName();
+        boolean gate = false;
+        // looking for the class in the stack that comes after PropertiesManager part
+        // 1) finds the beginning of PropertiesManager part (gate == false)
+        // 2) finds the first class after (gate == true)
+        for (StackTraceElement stackTraceElement : stackTrace) {
+            String className = stackTraceElement.getClassName();
+            if (!gate) {
+                if (managerClassName.equals(className))
+                    gate = true;
+            } else if (!managerClassName.equals(className)) {
+                return className;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,262 @@
+package com.inaryzen.easyproperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Streaming reader of .properties files that follows the rules of {@link java.util.Properties#load(java.io.InputStream)}:
+ * ISO 8859-1 encoding, comment lines, line continuations and escapes. Keys are matched against a
+ * {@link PropertyIndex} right in the reusable line buffer, so unknown keys cost no allocations; values of known
+ * keys are handed over as a range of a char array.
+ * <p>
+ * Files are read into a heap buffer rather than memory-mapped: a mapping is unmapped only when the buffer is
+ * collected, and on Windows a mapped file cannot be replaced, which would break the atomic writes of the file.
+ */
+final class PropertiesParser {
+    /**
+     * Receives values of the known properties in the order they appear in the file; the chars are valid only
+     * during the call.
+     */
+    interface ValueConsumer {
+        void accept(int index, char[] chars, int offset, int length);
+    }
+
+    private final ByteBuffer in;
+    private final PropertyIndex index;
+    private final ValueConsumer consumer;
+
+    private char[] line = new char[128];
+    private char[] converted = new char[128];
+
+    private PropertiesParser(ByteBuffer in, PropertyIndex index, ValueConsumer consumer) {
+        this.in = in;
+        this.index = index;
+        this.consumer = consumer;
+    }
+
+    /**
+     * @return flags of the properties found in the file, by property index
+     */
+    static boolean[] parse(Path path, PropertyIndex index, ValueConsumer consumer) throws IOException {
+        return parse(read(path), index, consumer);
+    }
+
+    /**
+     * Reads the whole file into a heap buffer.
+     */
+    static ByteBuffer read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8)
+                throw new IOException("File is too large: " + path);
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole file
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * Loads all the keys of the file. The file is read before {@link Properties#load(InputStream)}, which holds the
+     * monitor of the Properties while it reads, so no monitor is held during file I/O.
+     */
+    static Properties load(Path path) throws IOException {
+        return load(read(path));
+    }
+
+    /**
+     * Loads all the keys of the content {@link #read read} from a file.
+     */
+    static Properties load(ByteBuffer buffer) throws IOException {
+        Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining()));
+        return properties;
+    }
+
+    static boolean[] parse(ByteBuffer buffer, PropertyIndex index, ValueConsumer consumer) {
+        return new PropertiesParser(buffer, index, consumer).parse();
+    }
+
+    private boolean[] parse() {
+        boolean[] found = new boolean[index.size()];
+        int limit;
+        while ((limit = readLine()) >= 0) {
+            int keyLength = 0;
+            int valueStart = limit;
+            boolean hasSeparator = false;
+            boolean precedingBackslash = false;
+            while (keyLength < limit) {
+                char c = line[keyLength];
+                if ((c == '=' || c == ':') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    hasSeparator = true;
+                    break;
+                } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyLength++;
+            }
+            while (valueStart < limit) {
+                char c = line[valueStart];
+                if (c != ' ' && c != '\t' && c != '\f') {
+                    if (!hasSeparator && (c == '=' || c == ':'))
+                        hasSeparator = true;
+                    else
+                        break;
+                }
+                valueStart++;
+            }
+
+            int length = convert(0, keyLength);
+            int propertyIndex = index.indexOf(converted, 0, length);
+            if (propertyIndex < 0)
+                continue;
+
+            length = convert(valueStart, limit - valueStart);
+            found[propertyIndex] = true;
+            consumer.accept(propertyIndex, converted, 0, length);
+        }
+        return found;
+    }
+
+    /**
+     * Reads the next logical line into {@link #line}: skips comments, blank lines and leading whitespace, joins
+     * continued lines.
+     *
+     * @return length of the line or -1 at the end of the input
+     */
+    private int readLine() {
+        int length = 0;
+        boolean skipWhiteSpace = true;
+        boolean isCommentLine = false;
+        boolean isNewLine = true;
+        boolean appendedLineBegin = false;
+        boolean precedingBackslash = false;
+        boolean skipLF = false;
+
+        while (true) {
+            if (!in.hasRemaining()) {
+                if (length == 0 || isCommentLine)
+                    return -1;
+                if (precedingBackslash)
+                    length--;
+                return length;
+            }
+            char c = (char) (in.get() & 0xff);
+            if (skipLF) {
+                skipLF = false;
+                if (c == '\n')
+                    continue;
+            }
+            if (skipWhiteSpace) {
+                if (c == ' ' || c == '\t' || c == '\f')
+                    continue;
+                if (!appendedLineBegin && (c == '\r' || c == '\n'))
+                    continue;
+                skipWhiteSpace = false;
+                appendedLineBegin = false;
+            }
+            if (isNewLine) {
+                isNewLine = false;
+                if (c == '#' || c == '!') {
+                    isCommentLine = true;
+                    continue;
+                }
+            }
+
+            if (c != '\n' && c != '\r') {
+                if (isCommentLine)
+                    continue;
+                if (length == line.length)
+                    line = grow(line);
+                line[length++] = c;
+                precedingBackslash = c == '\\' && !precedingBackslash;
+            } else if (isCommentLine || length == 0) {
+                isCommentLine = false;
+                isNewLine = true;
+                skipWhiteSpace = true;
+                length = 0;
+            } else if (precedingBackslash) {
+                // the line continues on the next one
+                length--;
+                skipWhiteSpace = true;
+                appendedLineBegin = true;
+                precedingBackslash = false;
+                if (c == '\r')
+                    skipLF = true;
+            } else {
+                return length;
+            }
+        }
+    }
+
+    /**
+     * Replaces escapes of the part of {@link #line} and puts the result into {@link #converted}.
+     *
+     * @return length of the converted chars
+     */
+    private int convert(int offset, int length) {
+        if (converted.length < length)
+            converted = new char[line.length];
+        int end = offset + length;
+        int out = 0;
+        while (offset < end) {
+            char c = line[offset++];
+            if (c == '\\') {
+                if (offset == end)
+                    break;
+                c = line[offset++];
+                if (c == 'u') {
+                    if (end - offset < 4)
+                        throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = hexDigit(line[offset++]);
+                        if (digit < 0)
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            converted[out++] = c;
+        }
+        return out;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        return -1;
+    }
+
+    private static char[] grow(char[] chars) {
+        char[] grown = new char[chars.length * 2];
+        System.arraycopy(chars, 0, grown, 0, chars.length);
+        return grown;
+    }
+}
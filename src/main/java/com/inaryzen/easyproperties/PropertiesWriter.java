@@ -0,0 +1,355 @@
+package com.inaryzen.easyproperties;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writer of .properties files that keeps the layout of the previous content: comments, blank lines, the order of the
+ * keys and the text of unchanged values stay as they are. The previous content is split into lines; only the lines
+ * of changed values are replaced, lines of keys that are not saved anymore are dropped and new keys are appended in
+ * alphabetical order. The result is a single array, written to the file at once.
+ * <p>
+ * Values are escaped the way {@link java.util.Properties#store(java.io.OutputStream, String)} does, so the file
+ * stays ISO 8859-1 and is read back by {@link PropertiesParser} and {@link java.util.Properties} alike.
+ */
+final class PropertiesWriter {
+    private final byte[] original;
+    private final ByteBuilder out;
+    private String lineSeparator;
+
+    private PropertiesWriter(byte[] original) {
+        this.original = original;
+        this.out = new ByteBuilder(original.length + 256);
+    }
+
+    /**
+     * @param original previous content of the file; empty if there is no file
+     * @param values property name - value to save; the file will have exactly these keys
+     * @param persisted property name - value the file is known to hold; a line whose key has the same value here
+     *                  is kept even if it writes the value differently, e.g. "TRUE" instead of "true"
+     * @return the new content of the file
+     */
+    static byte[] write(byte[] original, Map<String, String> values, Map<String, String> persisted) {
+        return new PropertiesWriter(original).write(values, persisted);
+    }
+
+    private byte[] write(Map<String, String> values, Map<String, String> persisted) {
+        List<Entry> entries = split();
+        // a repeated key is defined by its last line, so the earlier ones are dropped
+        Map<String, Entry> last = new HashMap<>();
+        for (Entry entry : entries) {
+            if (entry.key != null)
+                last.put(entry.key, entry);
+        }
+
+        for (Entry entry : entries) {
+            if (entry.key == null) {
+                out.append(original, entry.start, entry.end);
+            } else {
+                String value = values.get(entry.key);
+                if (value == null || last.get(entry.key) != entry)
+                    continue;
+                if (value.equals(entry.value) || value.equals(persisted.get(entry.key))) {
+                    out.append(original, entry.start, entry.end);
+                } else if (entry.valueStart >= 0) {
+                    // single-line entry: the key and the separator keep their text
+                    out.append(original, entry.start, entry.valueStart);
+                    escape(value, false);
+                    out.append(original, entry.valueEnd, entry.end);
+                } else {
+                    escape(entry.key, true);
+                    out.append('=');
+                    escape(value, false);
+                    out.append(original, entry.valueEnd, entry.end);
+                }
+            }
+        }
+
+        TreeMap<String, String> added = new TreeMap<>();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            if (!last.containsKey(value.getKey()))
+                added.put(value.getKey(), value.getValue());
+        }
+        if (added.isEmpty())
+            return out.toArray();
+
+        String separator = lineSeparator != null ? lineSeparator : System.lineSeparator();
+        if (!out.isTerminated())
+            out.append(separator);
+        for (Map.Entry<String, String> value : added.entrySet()) {
+            escape(value.getKey(), true);
+            out.append('=');
+            escape(value.getValue(), false);
+            out.append(separator);
+        }
+        return out.toArray();
+    }
+
+    /**
+     * Splits the content into entries of key-value lines, including their continuation lines, and runs of other
+     * lines; every entry ends after its line terminator, if there is one.
+     */
+    private List<Entry> split() {
+        List<Entry> entries = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        int position = 0;
+        while (position < original.length) {
+            int start = position;
+            int first = skipWhiteSpace(position);
+            if (first == original.length || isTerminator(original[first]) || original[first] == '#'
+                    || original[first] == '!') {
+                // blank line or comment; a backslash does not continue a comment
+                position = nextLine(first);
+                entries.add(new Entry(start, position, position, null, null, -1));
+                continue;
+            }
+
+            line.setLength(0);
+            boolean continued = false;
+            int lineStart = first;
+            int lineEnd;
+            while (true) {
+                lineEnd = lineStart;
+                while (lineEnd < original.length && !isTerminator(original[lineEnd]))
+                    lineEnd++;
+                int backslashes = 0;
+                while (lineEnd - backslashes > lineStart && original[lineEnd - backslashes - 1] == '\\')
+                    backslashes++;
+                if (backslashes % 2 == 0 || lineEnd == original.length) {
+                    appendChars(line, lineStart, backslashes % 2 == 0 ? lineEnd : lineEnd - 1);
+                    break;
+                }
+                appendChars(line, lineStart, lineEnd - 1);
+                continued = true;
+                lineStart = skipWhiteSpace(nextLine(lineEnd));
+            }
+            position = nextLine(lineEnd);
+
+            int keyLength = 0;
+            int valueStart = line.length();
+            boolean hasSeparator = false;
+            boolean precedingBackslash = false;
+            while (keyLength < line.length()) {
+                char c = line.charAt(keyLength);
+                if ((c == '=' || c == ':') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    hasSeparator = true;
+                    break;
+                } else if ((c == ' ' || c == '\t' || c == '\f') && !precedingBackslash) {
+                    valueStart = keyLength + 1;
+                    break;
+                }
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                keyLength++;
+            }
+            while (valueStart < line.length()) {
+                char c = line.charAt(valueStart);
+                if (c != ' ' && c != '\t' && c != '\f') {
+                    if (!hasSeparator && (c == '=' || c == ':'))
+                        hasSeparator = true;
+                    else
+                        break;
+                }
+                valueStart++;
+            }
+
+            String key = unescape(line, 0, keyLength);
+            String value = unescape(line, valueStart, line.length());
+            // chars of a single line map to the bytes one to one
+            entries.add(new Entry(start, position, lineEnd, key, value, continued ? -1 : first + valueStart));
+        }
+        return entries;
+    }
+
+    private int skipWhiteSpace(int position) {
+        while (position < original.length
+                && (original[position] == ' ' || original[position] == '\t' || original[position] == '\f'))
+            position++;
+        return position;
+    }
+
+    /**
+     * @return position after the terminator of the line that ends at the position; remembers the first terminator
+     * as the line separator of the file
+     */
+    private int nextLine(int position) {
+        while (position < original.length && !isTerminator(original[position]))
+            position++;
+        int end = position;
+        if (position < original.length && original[position] == '\r')
+            position++;
+        if (position < original.length && original[position] == '\n' && (position == end || original[end] == '\r'))
+            position++;
+        if (lineSeparator == null && position > end)
+            lineSeparator = new String(original, end, position - end, StandardCharsets.ISO_8859_1);
+        return position;
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    private void appendChars(StringBuilder line, int from, int to) {
+        for (int i = from; i < to; i++)
+            line.append((char) (original[i] & 0xff));
+    }
+
+    private static String unescape(CharSequence line, int from, int to) {
+        StringBuilder result = new StringBuilder(to - from);
+        while (from < to) {
+            char c = line.charAt(from++);
+            if (c == '\\') {
+                if (from == to)
+                    break;
+                c = line.charAt(from++);
+                if (c == 'u') {
+                    if (to - from < 4)
+                        return null;
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(line.charAt(from++), 16);
+                        if (digit < 0)
+                            return null;
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Same escapes as Properties#store: separators, comment chars and whitespace are escaped, chars outside of
+     * printable ASCII are written as \\uxxxx.
+     */
+    private void escape(String s, boolean key) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c > 61 && c < 127) {
+                if (c == '\\')
+                    out.append('\\').append('\\');
+                else
+                    out.append(c);
+                continue;
+            }
+            switch (c) {
+                case ' ':
+                    if (i == 0 || key)
+                        out.append('\\');
+                    out.append(' ');
+                    break;
+                case '\t':
+                    out.append('\\').append('t');
+                    break;
+                case '\n':
+                    out.append('\\').append('n');
+                    break;
+                case '\r':
+                    out.append('\\').append('r');
+                    break;
+                case '\f':
+                    out.append('\\').append('f');
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    out.append('\\').append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        out.append('\\').append('u');
+                        for (int shift = 12; shift >= 0; shift -= 4)
+                            out.append(Character.toUpperCase(Character.forDigit((c >> shift) & 0xf, 16)));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+    }
+
+    /**
+     * Lines of the previous content: [start, end) including the terminator; [valueStart, valueEnd) is the value of a
+     * single-line entry, valueEnd is where the terminator starts.
+     */
+    private static final class Entry {
+        final int start;
+        final int end;
+        final int valueEnd;
+        // null for comments and blank lines
+        final String key;
+        // null if the value has malformed escapes, so it is always replaced
+        final String value;
+        // -1 for entries of several lines
+        final int valueStart;
+
+        Entry(int start, int end, int valueEnd, String key, String value, int valueStart) {
+            this.start = start;
+            this.end = end;
+            this.valueEnd = valueEnd;
+            this.key = key;
+            this.value = value;
+            this.valueStart = valueStart;
+        }
+    }
+
+    /**
+     * Growable byte array; chars are written as ISO 8859-1 bytes.
+     */
+    private static final class ByteBuilder {
+        private byte[] bytes;
+        private int size;
+
+        ByteBuilder(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        ByteBuilder append(char c) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) c;
+            return this;
+        }
+
+        void append(String s) {
+            for (int i = 0; i < s.length(); i++)
+                append(s.charAt(i));
+        }
+
+        void append(byte[] source, int from, int to) {
+            ensureCapacity(to - from);
+            System.arraycopy(source, from, bytes, size, to - from);
+            size += to - from;
+        }
+
+        /**
+         * @return whether the content is empty or ends with a line terminator
+         */
+        boolean isTerminated() {
+            return size == 0 || isTerminator(bytes[size - 1]);
+        }
+
+        byte[] toArray() {
+            return size == bytes.length ? bytes : Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.inaryzen.easyproperties;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.function.Function;
 
 /**
  * Created by inaryzen on 10/6/2016.
@@ -10,14 +9,19 @@ import java.util.function.Function;
 final class Property {
     public Method getter;
     public Method setter;
-    private Function<String, Object> writeConverter;
-    private Function<Object, String> readConverter;
+    private Converter<Object> converter;
+    private Accessor accessor;
 
     public void write(Object instance, String value) {
         if ("null".equalsIgnoreCase(value))
             throw new RuntimeException("The implementation doesn't support null values");
 
-        Object parameter = writeConverter.apply(value);
+        if (accessor != null) {
+            accessor.write(instance, value);
+            return;
+        }
+
+        Object parameter = converter.parse(value);
         try {
             setter.invoke(instance, parameter);
         } catch (IllegalAccessException | InvocationTargetException e) {
@@ -25,7 +29,28 @@ final class Property {
         }
     }
 
+    /**
+     * Same as {@link #write(Object, String)} for a value given as a range of chars.
+     */
+    public void write(Object instance, char[] chars, int offset, int length) {
+        // same as "null".equalsIgnoreCase(value) without creating the string
+        if (length == 4
+                && (chars[offset] | 0x20) == 'n'
+                && (chars[offset + 1] | 0x20) == 'u'
+                && (chars[offset + 2] | 0x20) == 'l'
+                && (chars[offset + 3] | 0x20) == 'l')
+            throw new RuntimeException("The implementation doesn't support null values");
+
+        if (accessor != null)
+            accessor.write(instance, chars, offset, length);
+        else
+            write(instance, new String(chars, offset, length));
+    }
+
     public String read(Object object) {
+        if (accessor != null)
+            return accessor.read(object);
+
         Object value;
         try {
             value = getter.invoke(object);
@@ -34,14 +59,49 @@ final class Property {
         }
         if (value == null)
             throw new RuntimeException("The implementation doesn't support null values");
-        return readConverter.apply(value);
+        return converter.format(value);
+    }
+
+    /**
+     * Sets the value of the property of one instance to another instance; lists and arrays are copied.
+     */
+    public void copy(Object from, Object to) {
+        if (accessor != null) {
+            accessor.copy(from, to);
+            return;
+        }
+
+        Object value;
+        try {
+            value = getter.invoke(from);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot invoke method: " + getter, e);
+        }
+        try {
+            setter.invoke(to, Accessor.copyOf(value));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot apply property value; method: " + setter + "; value: " + value, e);
+        }
+    }
+
+    public Converter<Object> getConverter() {
+        return converter;
+    }
+
+    @SuppressWarnings("unchecked") // the converter is found for the property type
+    public void setConverter(Converter<?> converter) {
+        this.converter = (Converter<Object>) converter;
     }
 
-    public void setWriteConverter(Function<String, Object> writeConverter) {
-        this.writeConverter = writeConverter;
+    public Accessor getAccessor() {
+        return accessor;
     }
 
-    public void setReadConverter(Function<Object, String> readConverter) {
-        this.readConverter = readConverter;
+    /**
+     * Builds the direct accessor for the getter/setter pair; if it cannot be built, the property keeps using
+     * reflection.
+     */
+    public void compileAccessor() {
+        accessor = Accessor.create(getter, setter, converter);
     }
 }
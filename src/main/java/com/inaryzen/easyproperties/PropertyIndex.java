@@ -0,0 +1,112 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Dense, ordered view of the properties of a class. Names are resolved by an open addressing table that can be
+ * probed with a range of a char array, so keys read from a file are matched without creating strings.
+ */
+final class PropertyIndex {
+    private final String[] names;
+    private final Property[] properties;
+    // slot -> property index + 1; 0 marks an empty slot
+    private final int[] table;
+    private final int mask;
+
+    private PropertyIndex(String[] names, Property[] properties) {
+        this.names = names;
+        this.properties = properties;
+
+        int capacity = Integer.highestOneBit(Math.max(names.length, 1) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int i = 0; i < names.length; i++) {
+            int slot = hash(names[i]) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Properties are ordered by name.
+     */
+    static PropertyIndex of(Map<String, Property> mapping) {
+        String[] names = mapping.keySet().toArray(new String[0]);
+        Arrays.sort(names);
+        Property[] properties = new Property[names.length];
+        for (int i = 0; i < names.length; i++)
+            properties[i] = mapping.get(names[i]);
+        return new PropertyIndex(names, properties);
+    }
+
+    /**
+     * @return index of the names only, for classes bound by a generated binder, which are not introspected;
+     * {@link #property} returns null
+     */
+    static PropertyIndex ofNames(Collection<String> propertyNames) {
+        String[] names = propertyNames.toArray(new String[0]);
+        Arrays.sort(names);
+        return new PropertyIndex(names, new Property[names.length]);
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    Property property(int index) {
+        return properties[index];
+    }
+
+    /**
+     * @return index of the property or -1 if there is no such property
+     */
+    int indexOf(String name) {
+        int slot = hash(name) & mask;
+        for (int entry; (entry = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (names[entry - 1].equals(name))
+                return entry - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * @return index of the property named by the chars or -1 if there is no such property
+     */
+    int indexOf(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++)
+            hash = 31 * hash + chars[i];
+        int slot = spread(hash) & mask;
+        for (int entry; (entry = table[slot]) != 0; slot = (slot + 1) & mask) {
+            if (matches(names[entry - 1], chars, offset, length))
+                return entry - 1;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String name, char[] chars, int offset, int length) {
+        if (name.length() != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[offset + i])
+                return false;
+        }
+        return true;
+    }
+
+    private static int hash(String name) {
+        // String#hashCode uses the same polynomial as indexOf(char[], int, int)
+        return spread(name.hashCode());
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
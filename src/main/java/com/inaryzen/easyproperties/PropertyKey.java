@@ -0,0 +1,275 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Handle of a property of a properties class, for access by a name known only at runtime (admin endpoints, feature
+ * flags). The name is resolved once, when the key is created; the key then holds the index of the property in the
+ * dense array of the class and its direct accessor, so reads and writes neither hash nor compare strings.
+ * <p>
+ * int, long, double and boolean properties are read and written by {@link #getInt}, {@link #setLong} etc. without
+ * boxing or conversion; {@link #getString} and {@link #setString} convert the value the way files do. Keys are
+ * immutable and can be shared by threads.
+ *
+ * @param <S> properties class
+ */
+public final class PropertyKey<S> {
+    private final Class<S> settingsClass;
+    private final String name;
+    private final int index;
+    private final Property property;
+    // the accessor of the property type, the others are null; all are null if the property falls back to reflection
+    private final Accessor.IntAccessor ints;
+    private final Accessor.LongAccessor longs;
+    private final Accessor.DoubleAccessor doubles;
+    private final Accessor.BooleanAccessor booleans;
+    private final Accessor.ObjectAccessor objects;
+
+    private PropertyKey(Class<S> settingsClass, PropertyIndex properties, int index) {
+        this.settingsClass = settingsClass;
+        this.name = properties.name(index);
+        this.index = index;
+        this.property = properties.property(index);
+
+        Accessor accessor = property.getAccessor();
+        this.ints = accessor instanceof Accessor.IntAccessor ? (Accessor.IntAccessor) accessor : null;
+        this.longs = accessor instanceof Accessor.LongAccessor ? (Accessor.LongAccessor) accessor : null;
+        this.doubles = accessor instanceof Accessor.DoubleAccessor ? (Accessor.DoubleAccessor) accessor : null;
+        this.booleans = accessor instanceof Accessor.BooleanAccessor ? (Accessor.BooleanAccessor) accessor : null;
+        this.objects = accessor instanceof Accessor.ObjectAccessor ? (Accessor.ObjectAccessor) accessor : null;
+    }
+
+    /**
+     * @param propertyName name of the property, in any case
+     * @throws IllegalArgumentException if the class has no such property
+     */
+    public static <S> PropertyKey<S> of(Class<S> settingsClass, String propertyName) {
+        Objects.requireNonNull(settingsClass);
+        Objects.requireNonNull(propertyName);
+        PropertyIndex properties = Metadata.indexOf(settingsClass);
+        int index = properties.indexOf(propertyName.toLowerCase(Locale.ROOT));
+        if (index < 0)
+            throw new IllegalArgumentException("Class " + settingsClass + " has no property: " + propertyName);
+        return new PropertyKey<>(settingsClass, properties, index);
+    }
+
+    /**
+     * @return keys of all the properties of the class, ordered by name
+     */
+    public static <S> List<PropertyKey<S>> all(Class<S> settingsClass) {
+        PropertyIndex properties = Metadata.indexOf(Objects.requireNonNull(settingsClass));
+        List<PropertyKey<S>> keys = new ArrayList<>(properties.size());
+        for (int i = 0; i < properties.size(); i++)
+            keys.add(new PropertyKey<>(settingsClass, properties, i));
+        return Collections.unmodifiableList(keys);
+    }
+
+    public Class<S> getSettingsClass() {
+        return settingsClass;
+    }
+
+    /**
+     * @return name of the property as it is in files
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return position of the property among the properties of the class ordered by name
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Class<?> getType() {
+        return property.getter.getReturnType();
+    }
+
+    /**
+     * @return the value converted to a string the way it is saved
+     */
+    public String getString(S instance) {
+        return property.read(instance);
+    }
+
+    /**
+     * Converts the value the way it is loaded from a file and sets it.
+     */
+    public void setString(S instance, String value) {
+        property.write(instance, value);
+    }
+
+    /**
+     * @return the value, boxed if the property is primitive
+     */
+    public Object get(S instance) {
+        if (objects != null)
+            return objects.get(instance);
+        if (ints != null)
+            return ints.getInt(instance);
+        if (longs != null)
+            return longs.getLong(instance);
+        if (doubles != null)
+            return doubles.getDouble(instance);
+        if (booleans != null)
+            return booleans.getBoolean(instance);
+        try {
+            return property.getter.invoke(instance);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot invoke method: " + property.getter, e);
+        }
+    }
+
+    /**
+     * Values of primitive properties are unboxed and set by the specialized accessors.
+     *
+     * @throws IllegalArgumentException if the value is not of the property type
+     */
+    public void set(S instance, Object value) {
+        Class<?> type = getType();
+        if (value == null || !wrapper(type).isInstance(value))
+            throw new IllegalArgumentException("Value of property " + name + " should be of type " + type + ": " + value);
+        if (objects != null) {
+            objects.set(instance, value);
+            return;
+        }
+        if (ints != null) {
+            ints.setInt(instance, (Integer) value);
+            return;
+        }
+        if (longs != null) {
+            longs.setLong(instance, (Long) value);
+            return;
+        }
+        if (doubles != null) {
+            doubles.setDouble(instance, (Double) value);
+            return;
+        }
+        if (booleans != null) {
+            booleans.setBoolean(instance, (Boolean) value);
+            return;
+        }
+        try {
+            property.setter.invoke(instance, value);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot apply property value; method: " + property.setter + "; value: " + value, e);
+        }
+    }
+
+    public int getInt(S instance) {
+        if (ints != null)
+            return ints.getInt(instance);
+        checkType(int.class);
+        return (Integer) getNonNull(instance);
+    }
+
+    public void setInt(S instance, int value) {
+        if (ints != null) {
+            ints.setInt(instance, value);
+            return;
+        }
+        checkType(int.class);
+        set(instance, value);
+    }
+
+    public long getLong(S instance) {
+        if (longs != null)
+            return longs.getLong(instance);
+        checkType(long.class);
+        return (Long) getNonNull(instance);
+    }
+
+    public void setLong(S instance, long value) {
+        if (longs != null) {
+            longs.setLong(instance, value);
+            return;
+        }
+        checkType(long.class);
+        set(instance, value);
+    }
+
+    public double getDouble(S instance) {
+        if (doubles != null)
+            return doubles.getDouble(instance);
+        checkType(double.class);
+        return (Double) getNonNull(instance);
+    }
+
+    public void setDouble(S instance, double value) {
+        if (doubles != null) {
+            doubles.setDouble(instance, value);
+            return;
+        }
+        checkType(double.class);
+        set(instance, value);
+    }
+
+    public boolean getBoolean(S instance) {
+        if (booleans != null)
+            return booleans.getBoolean(instance);
+        checkType(boolean.class);
+        return (Boolean) getNonNull(instance);
+    }
+
+    public void setBoolean(S instance, boolean value) {
+        if (booleans != null) {
+            booleans.setBoolean(instance, value);
+            return;
+        }
+        checkType(boolean.class);
+        set(instance, value);
+    }
+
+    /**
+     * Primitive accessors of properties whose accessor is not specialized, e.g. wrappers or primitives with a custom
+     * converter, go through boxing.
+     *
+     * @throws IllegalArgumentException if the property is neither of the primitive type nor of its wrapper
+     */
+    private void checkType(Class<?> primitive) {
+        Class<?> type = getType();
+        if (type != primitive && type != wrapper(primitive))
+            throw new IllegalArgumentException("Property " + name + " is of type " + type + ", not " + primitive);
+    }
+
+    /**
+     * @throws IllegalStateException if a wrapper property holds null, which has no primitive value
+     */
+    private Object getNonNull(S instance) {
+        Object value = get(instance);
+        if (value == null)
+            throw new IllegalStateException("Property " + this + " is null, it has no primitive value");
+        return value;
+    }
+
+    private static Class<?> wrapper(Class<?> type) {
+        if (type == int.class)
+            return Integer.class;
+        if (type == long.class)
+            return Long.class;
+        if (type == double.class)
+            return Double.class;
+        if (type == boolean.class)
+            return Boolean.class;
+        if (type == float.class)
+            return Float.class;
+        if (type == short.class)
+            return Short.class;
+        if (type == byte.class)
+            return Byte.class;
+        if (type == char.class)
+            return Character.class;
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return settingsClass.getName() + "#" + name;
+    }
+}
@@ -0,0 +1,43 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of registering several property classes at once: instances of the classes that have been registered and
+ * failures of the others.
+ */
+public final class RegistrationResult {
+    private final Map<Class<?>, Object> instances;
+    private final Map<Class<?>, Throwable> errors;
+
+    RegistrationResult(Map<Class<?>, Object> instances, Map<Class<?>, Throwable> errors) {
+        this.instances = Collections.unmodifiableMap(instances);
+        this.errors = Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * @return the instance of the class or null if the class has not been registered
+     */
+    public <T> T get(Class<T> settingsClass) {
+        return settingsClass.cast(instances.get(settingsClass));
+    }
+
+    /**
+     * @return property class - registered instance
+     */
+    public Map<Class<?>, Object> getInstances() {
+        return instances;
+    }
+
+    /**
+     * @return property class - cause of the failure
+     */
+    public Map<Class<?>, Throwable> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
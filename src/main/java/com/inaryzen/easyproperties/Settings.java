@@ -0,0 +1,20 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a properties class for the easy-properties annotation processor. For every marked class the processor
+ * generates a {@link Binder} named {@code <Class>_PropertiesBinder} (nested classes are joined by '_'), which
+ * {@link PropertiesManager} prefers over reflection.
+ * <p>
+ * The class, its enclosing classes and its non-argument constructor must not be private.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Settings {
+}
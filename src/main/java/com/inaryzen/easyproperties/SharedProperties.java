@@ -0,0 +1,311 @@
+package com.inaryzen.easyproperties;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * An instance of a properties class whose file is shared by several processes. Every save appends the changed keys
+ * to a {@link ChangeLog change log} next to the file (its name with ".log" appended) and increments the version of
+ * the file; {@link #refresh()} applies the keys changed by the other processes without reading the whole file.
+ * <p>
+ * Saves are compare-and-set: {@link #save()} writes the file only if no other process has saved it since this
+ * instance was loaded or refreshed. The processes are coordinated by file locks of the change log, the threads of
+ * one process by the lock of the file in the manager. All the processes sharing the file should use
+ * SharedProperties; a file saved otherwise is detected by its modification time and read again entirely.
+ *
+ * @param <T> properties class
+ */
+public final class SharedProperties<T> {
+    private final PropertiesManager manager;
+    private final Metadata metadata;
+    private final Supplier<T> factory;
+    private final T instance;
+    private final ReentrantLock lock;
+    private final Path logPath;
+
+    // guarded by lock
+    private long base;
+    private long offset = ChangeLog.HEADER_SIZE;
+    private volatile long version;
+
+    private SharedProperties(PropertiesManager manager, Metadata metadata, Supplier<T> factory, T instance,
+                             ReentrantLock lock) {
+        this.manager = manager;
+        this.metadata = metadata;
+        this.factory = factory;
+        this.instance = instance;
+        this.lock = lock;
+        this.logPath = ChangeLog.logPath(metadata.getPath());
+    }
+
+    /**
+     * Loads the instance and the position in the change log at once, so no save of another process falls in between.
+     */
+    static <T> SharedProperties<T> open(PropertiesManager manager, Metadata metadata, Supplier<T> factory,
+                                        Supplier<T> loader) {
+        ReentrantLock lock = PropertiesManager.fileLock(metadata.getPath());
+        lock.lock();
+        try (ChangeLog log = ChangeLog.open(ChangeLog.logPath(metadata.getPath()))) {
+            FileLock fileLock = log.lock(true);
+            try {
+                SharedProperties<T> shared = new SharedProperties<>(manager, metadata, factory, loader.get(), lock);
+                if (log.isStarted()) {
+                    shared.base = log.readBase();
+                    shared.version = shared.base;
+                    List<ChangeLog.Record> records = new ArrayList<>();
+                    shared.offset = log.read(ChangeLog.HEADER_SIZE, records);
+                    if (!records.isEmpty())
+                        shared.version = records.get(records.size() - 1).version;
+                }
+                return shared;
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read change log: " + ChangeLog.logPath(metadata.getPath()), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the instance; it should be changed only by the thread that saves it
+     */
+    public T get() {
+        return instance;
+    }
+
+    /**
+     * @return version of the file as of the last load, refresh or save: the number of saves since the change log
+     * has been created
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Applies the changes saved by the other processes since the last load, refresh or save. Only the changed keys
+     * are converted and set, unless the change log has been compacted or the file has been saved without the log:
+     * then the whole file is read. Changed keys override the unsaved values of the instance.
+     *
+     * @return whether the instance has been changed
+     * @throws ValidationException if the changes violate the constraints of the class; the instance is not changed
+     * then
+     */
+    public boolean refresh() {
+        lock.lock();
+        try (ChangeLog log = ChangeLog.open(logPath)) {
+            FileLock fileLock = log.lock(true);
+            try {
+                return catchUp(log);
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read change log: " + logPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saves the properties that differ from the file, unless the file has been saved by another process since the
+     * last load, refresh or save of this instance.
+     *
+     * @return false if the file has been saved by another process; the instance is not saved then and should be
+     * {@link #refresh() refreshed} before it is saved again
+     */
+    public boolean save() {
+        lock.lock();
+        try (ChangeLog log = ChangeLog.open(logPath)) {
+            FileLock fileLock = log.lock(false);
+            try {
+                boolean started = log.isStarted();
+                if ((started ? log.readBase() : 0) != base)
+                    return false;
+                if (started && log.read(offset, new ArrayList<>()) != offset)
+                    return false;
+                if (isFileChanged())
+                    return false;
+
+                Map<String, String> values =
+                        PersistedState.toMap(PropertiesManager.storeProperties(metadata, instance));
+                Set<String> changed = metadata.getPersistedState().changedProperties(values);
+                if (changed.isEmpty())
+                    return true;
+                Map<String, String> changes = new HashMap<>();
+                for (String propertyName : changed)
+                    changes.put(propertyName, values.get(propertyName));
+
+                manager.writeProperties(metadata, instance);
+                if (!started) {
+                    log.reset(base);
+                    offset = ChangeLog.HEADER_SIZE;
+                }
+                offset = log.append(offset, version + 1, changes);
+                version++;
+                if (offset > ChangeLog.COMPACTION_THRESHOLD) {
+                    // the other processes read the whole file once instead of the whole log
+                    log.reset(version);
+                    base = version;
+                    offset = ChangeLog.HEADER_SIZE;
+                }
+                return true;
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot write change log: " + logPath, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Refreshes the instance, applies the changes and saves it; repeats all of that while another process saves the
+     * file in between.
+     *
+     * @return the saved instance
+     */
+    public T update(Consumer<? super T> changes) {
+        Objects.requireNonNull(changes);
+        while (true) {
+            refresh();
+            changes.accept(instance);
+            if (save())
+                return instance;
+        }
+    }
+
+    private boolean catchUp(ChangeLog log) throws IOException {
+        boolean started = log.isStarted();
+        long logBase = started ? log.readBase() : 0;
+        if (logBase != base) {
+            reload(logBase);
+            if (started) {
+                List<ChangeLog.Record> records = new ArrayList<>();
+                offset = log.read(ChangeLog.HEADER_SIZE, records);
+                if (!records.isEmpty())
+                    version = records.get(records.size() - 1).version;
+            }
+            return true;
+        }
+
+        List<ChangeLog.Record> records = new ArrayList<>();
+        long end = started ? log.read(offset, records) : offset;
+        if (records.isEmpty()) {
+            if (!isFileChanged())
+                return false;
+            reload(logBase);
+            return true;
+        }
+
+        Map<String, String> changes = new HashMap<>();
+        for (ChangeLog.Record record : records)
+            changes.putAll(record.changes);
+        Map<String, String> persisted = new HashMap<>(metadata.getPersistedState().getValues());
+        persisted.putAll(changes);
+        apply(changes, persisted.keySet());
+        metadata.setPersistedState(PersistedState.of(persisted, metadata.getPath()));
+        // the records are consumed only once they are applied, so rejected changes are read again by the next refresh
+        offset = end;
+        version = records.get(records.size() - 1).version;
+        return true;
+    }
+
+    /**
+     * Reads the whole file into the instance; properties missing in the file keep their values.
+     */
+    private void reload(long logBase) throws IOException {
+        Path path = metadata.getPath();
+        ByteBuffer content = Files.exists(path) ? PropertiesParser.read(path) : ByteBuffer.allocate(0);
+        Map<String, String> values = PersistedState.toMap(PropertiesParser.load(content));
+        apply(values, values.keySet());
+        Map<String, String> persisted = PersistedState.toMap(PropertiesManager.storeProperties(metadata, instance));
+        persisted.keySet().retainAll(values.keySet());
+        metadata.setPersistedState(PersistedState.of(persisted, path, content));
+        base = logBase;
+        version = logBase;
+        offset = ChangeLog.HEADER_SIZE;
+    }
+
+    /**
+     * @param fileKeys keys the file defines with the values applied
+     */
+    private void apply(Map<String, String> values, Set<String> fileKeys) {
+        validate(values, fileKeys);
+        Binder<T> binder = metadata.getBinder();
+        if (binder != null) {
+            Properties properties = new Properties();
+            properties.putAll(values);
+            binder.bind(instance, properties);
+            return;
+        }
+        PropertyIndex index = metadata.getIndex();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            int i = index.indexOf(entry.getKey());
+            if (i < 0)
+                continue;
+            try {
+                index.property(i).write(instance, entry.getValue());
+            } catch (RuntimeException e) {
+                manager.getMetrics().conversionFailed(metadata.getPath(), metadata.getSettingsClass(), entry.getKey(), e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Checks the values on a copy of the instance, so changes that violate the constraints leave the instance as it
+     * is. The values are set by the introspected properties, also for classes with a binder: their constraints
+     * take the introspection anyway.
+     */
+    private void validate(Map<String, String> values, Set<String> fileKeys) {
+        Validator validator = metadata.getValidator();
+        if (validator == null)
+            return;
+        PropertyIndex index = metadata.getIndex();
+        T copy = factory.get();
+        boolean[] found = new boolean[index.size()];
+        for (int i = 0; i < index.size(); i++) {
+            index.property(i).copy(instance, copy);
+            found[i] = fileKeys.contains(index.name(i));
+        }
+        String[] violations = new String[index.size()];
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            int i = index.indexOf(entry.getKey());
+            if (i < 0)
+                continue;
+            try {
+                index.property(i).write(copy, entry.getValue());
+            } catch (RuntimeException e) {
+                violations[i] = "cannot convert \"" + entry.getValue() + "\": " + e;
+            }
+        }
+        validator.validate(copy, found, violations);
+        validator.throwIfInvalid(metadata.getPropertyFile(), violations);
+    }
+
+    /**
+     * @return whether the file has been changed since it was last read or written by this instance
+     */
+    private boolean isFileChanged() throws IOException {
+        PersistedState persisted = metadata.getPersistedState();
+        if (persisted.getLastModified() == null)
+            return Files.exists(metadata.getPath());
+        return !persisted.isFileUnchanged(metadata.getPath());
+    }
+}
@@ -0,0 +1,98 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Instances of a properties class that are never modified after they are published. Readers get the latest instance
+ * by a single volatile read and see consistent values of all its properties without locking; an update modifies a
+ * copy of the instance and publishes the copy.
+ * <p>
+ * The published instances are ordinary beans shared by all the readers, so they should be changed through
+ * {@link #update} only; callers that need an instance to modify take a {@link #copy()}. The contract is enforced:
+ * {@link #update} and {@link #save} throw IllegalStateException if the published instance has been modified.
+ *
+ * @param <T> properties class
+ */
+public final class SnapshotProperties<T> {
+    private final PropertiesManager manager;
+    private final UnaryOperator<T> copier;
+    private final Function<T, Map<String, String>> reader;
+    // not a monitor: updates may be called from virtual threads
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile T current;
+    // values of the current instance as it has been published; guarded by updateLock
+    private Map<String, String> published;
+
+    /**
+     * @param reader converts the values of an instance to strings the way they are saved
+     */
+    SnapshotProperties(PropertiesManager manager, T current, UnaryOperator<T> copier,
+                       Function<T, Map<String, String>> reader) {
+        this.manager = manager;
+        this.current = current;
+        this.copier = copier;
+        this.reader = reader;
+        this.published = reader.apply(current);
+    }
+
+    /**
+     * @return the latest published instance; it is shared by all the readers and should not be modified
+     */
+    public T get() {
+        return current;
+    }
+
+    /**
+     * @return a copy of the latest published instance, which can be modified; changes of the copy are not published
+     */
+    public T copy() {
+        return copier.apply(current);
+    }
+
+    /**
+     * Applies the changes to a copy of the latest instance and publishes the copy. Updates are serialized, so
+     * concurrent updates do not lose each other's changes; readers are not blocked.
+     *
+     * @return the published instance
+     * @throws IllegalStateException if the published instance has been modified
+     */
+    public T update(Consumer<? super T> changes) {
+        Objects.requireNonNull(changes);
+        updateLock.lock();
+        try {
+            checkUnmodified();
+            T copy = copier.apply(current);
+            changes.accept(copy);
+            published = reader.apply(copy);
+            current = copy;
+            return copy;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Saves the latest published instance to the file.
+     *
+     * @throws IllegalStateException if the published instance has been modified
+     */
+    public void save() {
+        updateLock.lock();
+        try {
+            checkUnmodified();
+        } finally {
+            updateLock.unlock();
+        }
+        manager.saveProperties(current);
+    }
+
+    private void checkUnmodified() {
+        if (!reader.apply(current).equals(published))
+            throw new IllegalStateException("The published instance has been modified; use update() or copy()");
+    }
+}
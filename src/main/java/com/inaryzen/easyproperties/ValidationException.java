@@ -0,0 +1,44 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Thrown by registration when the values of a file violate the constraints of its properties class. All the
+ * violations of the file are reported at once, including values that cannot be converted.
+ *
+ * @see Range
+ * @see Matches
+ * @see OneOf
+ * @see Required
+ */
+public class ValidationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String propertiesFile;
+    private final Map<String, String> violations;
+
+    ValidationException(String propertiesFile, Map<String, String> violations) {
+        super(message(propertiesFile, violations));
+        this.propertiesFile = propertiesFile;
+        this.violations = Collections.unmodifiableMap(violations);
+    }
+
+    private static String message(String propertiesFile, Map<String, String> violations) {
+        StringBuilder message = new StringBuilder("Invalid properties in file: ").append(propertiesFile);
+        for (Map.Entry<String, String> violation : violations.entrySet())
+            message.append("\n  ").append(violation.getKey()).append(": ").append(violation.getValue());
+        return message.toString();
+    }
+
+    public String getPropertiesFile() {
+        return propertiesFile;
+    }
+
+    /**
+     * @return property name - description of the violation, ordered by property name
+     */
+    public Map<String, String> getViolations() {
+        return violations;
+    }
+}
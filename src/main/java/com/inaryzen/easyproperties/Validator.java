@@ -0,0 +1,165 @@
+package com.inaryzen.easyproperties;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Constraints of a properties class compiled from the annotations of its getters: one array of checks by property
+ * index, so validation visits only the constrained properties and parses no annotations.
+ */
+final class Validator {
+    private final PropertyIndex index;
+    // checks by property index; null for properties without constraints
+    private final Check[][] checks;
+    private final boolean[] required;
+
+    private Validator(PropertyIndex index, Check[][] checks, boolean[] required) {
+        this.index = index;
+        this.checks = checks;
+        this.required = required;
+    }
+
+    /**
+     * @return the properties the violations are indexed by
+     */
+    PropertyIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the validator of the class or null if its properties have no constraints
+     */
+    static Validator of(PropertyIndex index) {
+        Check[][] checks = new Check[index.size()][];
+        boolean[] required = new boolean[index.size()];
+        boolean constrained = false;
+        for (int i = 0; i < index.size(); i++) {
+            Property property = index.property(i);
+            Method getter = property.getter;
+            List<Check> propertyChecks = new ArrayList<>();
+
+            Range range = getter.getAnnotation(Range.class);
+            if (range != null)
+                propertyChecks.add(rangeCheck(index.name(i), property, range));
+            Matches matches = getter.getAnnotation(Matches.class);
+            if (matches != null) {
+                Pattern pattern = Pattern.compile(matches.value());
+                propertyChecks.add((p, instance) -> {
+                    String value = p.read(instance);
+                    return pattern.matcher(value).matches() ? null : "\"" + value + "\" does not match " + pattern;
+                });
+            }
+            OneOf oneOf = getter.getAnnotation(OneOf.class);
+            if (oneOf != null) {
+                Set<String> values = new HashSet<>(Arrays.asList(oneOf.value()));
+                String allowed = Arrays.toString(oneOf.value());
+                propertyChecks.add((p, instance) -> {
+                    String value = p.read(instance);
+                    return values.contains(value) ? null : "\"" + value + "\" is not one of " + allowed;
+                });
+            }
+            required[i] = getter.isAnnotationPresent(Required.class);
+
+            if (!propertyChecks.isEmpty())
+                checks[i] = propertyChecks.toArray(new Check[0]);
+            constrained |= checks[i] != null || required[i];
+        }
+        return constrained ? new Validator(index, checks, required) : null;
+    }
+
+    private static Check rangeCheck(String name, Property property, Range range) {
+        Class<?> type = property.getter.getReturnType();
+        if (!(type.isPrimitive() && type != boolean.class && type != char.class) && !Number.class.isAssignableFrom(type))
+            throw new RuntimeException("@Range is not applicable to property " + name + " of type " + type);
+
+        double min = range.min();
+        double max = range.max();
+        return (p, instance) -> {
+            double value = number(p, instance);
+            if (value < min)
+                return p.read(instance) + " is less than " + format(min);
+            if (value > max)
+                return p.read(instance) + " is greater than " + format(max);
+            return null;
+        };
+    }
+
+    private static double number(Property property, Object instance) {
+        Accessor accessor = property.getAccessor();
+        if (accessor instanceof Accessor.IntAccessor)
+            return ((Accessor.IntAccessor) accessor).getInt(instance);
+        if (accessor instanceof Accessor.LongAccessor)
+            return ((Accessor.LongAccessor) accessor).getLong(instance);
+        if (accessor instanceof Accessor.DoubleAccessor)
+            return ((Accessor.DoubleAccessor) accessor).getDouble(instance);
+        try {
+            return ((Number) property.getter.invoke(instance)).doubleValue();
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot invoke method: " + property.getter, e);
+        }
+    }
+
+    private static String format(double bound) {
+        return bound == Math.rint(bound) && Math.abs(bound) < 1e15 ? Long.toString((long) bound) : Double.toString(bound);
+    }
+
+    /**
+     * Checks the values of the instance; properties that already have a violation, e.g. a value that cannot be
+     * converted, are skipped.
+     *
+     * @param found flags of the properties defined by the file, by property index
+     * @param violations violations by property index, filled for the invalid properties
+     */
+    void validate(Object instance, boolean[] found, String[] violations) {
+        for (int i = 0; i < checks.length; i++) {
+            if (violations[i] != null)
+                continue;
+            if (required[i] && !found[i]) {
+                violations[i] = "is required";
+                continue;
+            }
+            Check[] propertyChecks = checks[i];
+            if (propertyChecks == null)
+                continue;
+            Property property = index.property(i);
+            for (Check check : propertyChecks) {
+                String violation = check.check(property, instance);
+                if (violation != null) {
+                    violations[i] = violation;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws ValidationException if there are violations
+     */
+    void throwIfInvalid(String propertiesFile, String[] violations) {
+        Map<String, String> invalid = null;
+        for (int i = 0; i < violations.length; i++) {
+            if (violations[i] == null)
+                continue;
+            if (invalid == null)
+                invalid = new LinkedHashMap<>();
+            invalid.put(index.name(i), violations[i]);
+        }
+        if (invalid != null)
+            throw new ValidationException(propertiesFile, invalid);
+    }
+
+    private interface Check {
+        /**
+         * @return description of the violation or null if the value is valid
+         */
+        String check(Property property, Object instance);
+    }
+}
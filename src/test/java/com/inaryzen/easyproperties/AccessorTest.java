@@ -0,0 +1,167 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+public class AccessorTest {
+    @Test
+    public void primitiveAccessors() throws Exception {
+        Assert.assertTrue(accessor("Count", int.class) instanceof Accessor.IntAccessor);
+        Assert.assertTrue(accessor("Size", long.class) instanceof Accessor.LongAccessor);
+        Assert.assertTrue(accessor("Price", double.class) instanceof Accessor.DoubleAccessor);
+        Assert.assertTrue(accessor("Enabled", boolean.class) instanceof Accessor.BooleanAccessor);
+        Assert.assertTrue(accessor("Name", String.class) instanceof Accessor.ObjectAccessor);
+    }
+
+    @Test
+    public void writeAndRead() throws Exception {
+        TestClass testClass = new TestClass();
+
+        accessor("Count", int.class).write(testClass, "42");
+        accessor("Size", long.class).write(testClass, "9000000000");
+        accessor("Price", double.class).write(testClass, "42.999");
+        accessor("Enabled", boolean.class).write(testClass, "true");
+        accessor("Name", String.class).write(testClass, "name");
+
+        Assert.assertEquals(42, testClass.getCount());
+        Assert.assertEquals(9000000000L, testClass.getSize());
+        Assert.assertEquals(42.999, testClass.getPrice(), 0.0);
+        Assert.assertTrue(testClass.isEnabled());
+        Assert.assertEquals("name", testClass.getName());
+
+        Assert.assertEquals("42", accessor("Count", int.class).read(testClass));
+        Assert.assertEquals("9000000000", accessor("Size", long.class).read(testClass));
+        Assert.assertEquals("42.999", accessor("Price", double.class).read(testClass));
+        Assert.assertEquals("true", accessor("Enabled", boolean.class).read(testClass));
+        Assert.assertEquals("name", accessor("Name", String.class).read(testClass));
+    }
+
+    @Test
+    public void primitiveAccessWithoutConversion() throws Exception {
+        TestClass testClass = new TestClass();
+        Accessor.IntAccessor count = (Accessor.IntAccessor) accessor("Count", int.class);
+        count.setInt(testClass, 7);
+        Assert.assertEquals(7, count.getInt(testClass));
+    }
+
+    @Test
+    public void copy() throws Exception {
+        TestClass from = new TestClass();
+        from.setCount(7);
+        from.setSize(8);
+        from.setPrice(9.5);
+        from.setEnabled(true);
+        from.setName("name");
+
+        TestClass to = new TestClass();
+        accessor("Count", int.class).copy(from, to);
+        accessor("Size", long.class).copy(from, to);
+        accessor("Price", double.class).copy(from, to);
+        accessor("Enabled", boolean.class).copy(from, to);
+        accessor("Name", String.class).copy(from, to);
+
+        Assert.assertEquals(7, to.getCount());
+        Assert.assertEquals(8, to.getSize());
+        Assert.assertEquals(9.5, to.getPrice(), 0.0);
+        Assert.assertTrue(to.isEnabled());
+        Assert.assertEquals("name", to.getName());
+    }
+
+    @Test
+    public void writeChars() throws Exception {
+        TestClass testClass = new TestClass();
+        char[] chars = "x-2147483648 9223372036854775807 TRUE 1.5".toCharArray();
+
+        accessor("Count", int.class).write(testClass, chars, 1, 11);
+        accessor("Size", long.class).write(testClass, chars, 13, 19);
+        accessor("Enabled", boolean.class).write(testClass, chars, 33, 4);
+        accessor("Price", double.class).write(testClass, chars, 38, 3);
+
+        Assert.assertEquals(Integer.MIN_VALUE, testClass.getCount());
+        Assert.assertEquals(Long.MAX_VALUE, testClass.getSize());
+        Assert.assertTrue(testClass.isEnabled());
+        Assert.assertEquals(1.5, testClass.getPrice(), 0.0);
+    }
+
+    @Test
+    public void parseLong() throws Exception {
+        for (String value : new String[]{"0", "-0", "+7", "123", "-2147483648", "2147483647"}) {
+            char[] chars = value.toCharArray();
+            Assert.assertEquals(Integer.parseInt(value),
+                    Accessor.parseLong(chars, 0, chars.length, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        }
+        for (String value : new String[]{"", "-", "+", "2147483648", "-2147483649", "1a", " 1", "1.0"}) {
+            char[] chars = value.toCharArray();
+            try {
+                Accessor.parseLong(chars, 0, chars.length, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                Assert.fail(value);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void nullValue() throws Exception {
+        TestClass testClass = new TestClass();
+        testClass.setName(null);
+        accessor("Name", String.class).read(testClass);
+    }
+
+    private static Accessor accessor(String name, Class<?> type) throws Exception {
+        String getterName = type == boolean.class ? "is" + name : "get" + name;
+        Method getter = TestClass.class.getMethod(getterName);
+        Method setter = TestClass.class.getMethod("set" + name, type);
+        return Accessor.create(getter, setter, Converters.getDefault().find(type));
+    }
+
+    public static class TestClass {
+        private int count;
+        private long size;
+        private double price;
+        private boolean enabled;
+        private String name = "";
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Saves properties with the cache enabled, checks that values are loaded from the cache; then replaces the file
+     * with another content of the same size and modification time and checks that the file is parsed again
+     */
+    @Test
+    public void loadFromCache() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Path cache = BinaryCache.cachePath(propertiesFile);
+
+        PropertiesManager manager = new PropertiesManager();
+        manager.setBinaryCache(true);
+        CachedBean bean = manager.registerProperties(CachedBean.class, propertiesFile.toString());
+        assertFalse(Files.exists(cache));
+        bean.setCount(11);
+        bean.setSize(9000000000L);
+        bean.setRatio(0.25);
+        bean.setEnabled(true);
+        bean.setName("cached \u0442\u0435\u043a\u0441\u0442");
+        manager.saveProperties(bean);
+        assertTrue(Files.exists(cache));
+
+        long[] binds = {-1};
+        manager = cachingManager(binds);
+        bean = manager.registerProperties(CachedBean.class, propertiesFile.toString());
+        assertEquals(0, binds[0]);
+        assertEquals(11, bean.getCount());
+        assertEquals(9000000000L, bean.getSize());
+        assertEquals(0.25, bean.getRatio(), 0.0);
+        assertTrue(bean.isEnabled());
+        assertEquals("cached \u0442\u0435\u043a\u0441\u0442", bean.getName());
+        assertFalse(manager.isDirty(bean));
+
+        // the checksum detects the change the modification time and the size miss
+        String content = new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1);
+        FileTime lastModified = Files.getLastModifiedTime(propertiesFile);
+        Files.write(propertiesFile, content.replace("count=11", "count=22").getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(propertiesFile, lastModified);
+        assertEquals(22, cachingManager(binds).registerProperties(CachedBean.class, propertiesFile.toString()).getCount());
+
+        // the cache has been rewritten for the parsed file
+        binds[0] = -1;
+        assertEquals(22, cachingManager(binds).registerProperties(CachedBean.class, propertiesFile.toString()).getCount());
+        assertEquals(0, binds[0]);
+    }
+
+    /**
+     * Loads a file modified long before its cache is written, checks that the values, including the ones converted
+     * from text, are taken from the cache, which is trusted by the modification time and the size alone; then
+     * changes the modification time and checks that the file is parsed again
+     */
+    @Test
+    public void trustModificationTime() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "count=5\nname=text\nunit=MINUTES\n".getBytes(StandardCharsets.ISO_8859_1));
+        FileTime lastModified = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+        Files.setLastModifiedTime(propertiesFile, lastModified);
+        load(propertiesFile);
+
+        long[] binds = {-1};
+        CachedBean bean = cachingManager(binds).registerProperties(CachedBean.class, propertiesFile.toString());
+        assertEquals(0, binds[0]);
+        assertEquals(5, bean.getCount());
+        assertEquals("text", bean.getName());
+        assertEquals(TimeUnit.MINUTES, bean.getUnit());
+
+        // a change that keeps both the size and the modification time is not seen
+        Files.write(propertiesFile, "count=6\nname=text\nunit=MINUTES\n".getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(propertiesFile, lastModified);
+        assertEquals(5, load(propertiesFile).getCount());
+
+        Files.setLastModifiedTime(propertiesFile, FileTime.fromMillis(lastModified.toMillis() + 1000));
+        assertEquals(6, cachingManager(binds).registerProperties(CachedBean.class, propertiesFile.toString())
+                .getCount());
+        assertTrue(binds[0] > 0);
+    }
+
+    /**
+     * Breaks the cache in several ways, checks that the file is parsed instead
+     */
+    @Test
+    public void invalidCache() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Path cache = BinaryCache.cachePath(propertiesFile);
+        Files.write(propertiesFile, "count=5\nname=text\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertiesManager manager = new PropertiesManager();
+        manager.setBinaryCache(true);
+        manager.registerProperties(CachedBean.class, propertiesFile.toString());
+        byte[] valid = Files.readAllBytes(cache);
+
+        for (int length : new int[]{0, 10, valid.length - 1}) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(valid, 0, truncated, 0, length);
+            Files.write(cache, truncated);
+            assertEquals(5, load(propertiesFile).getCount());
+        }
+
+        // another class for the same file
+        Files.write(cache, valid);
+        manager = new PropertiesManager();
+        manager.setBinaryCache(true);
+        assertEquals(5, manager.registerProperties(PropertiesManagerConcurrencyTest.CounterBean.class,
+                propertiesFile.toString()).getCount());
+    }
+
+    /**
+     * @param binds receives the bind time of the last load, which is 0 if the values have been taken from the cache
+     */
+    private static PropertiesManager cachingManager(long[] binds) {
+        PropertiesManager manager = new PropertiesManager();
+        manager.setBinaryCache(true);
+        manager.setMetricsListener(new MetricsListener() {
+            @Override
+            public void loaded(Path file, Class<?> settingsClass, long introspectionNanos, long readNanos,
+                               long bindNanos) {
+                binds[0] = bindNanos;
+            }
+        });
+        return manager;
+    }
+
+    private static CachedBean load(Path propertiesFile) {
+        PropertiesManager manager = new PropertiesManager();
+        manager.setBinaryCache(true);
+        return manager.registerProperties(CachedBean.class, propertiesFile.toString());
+    }
+
+    public static class CachedBean {
+        private int count;
+        private long size;
+        private double ratio;
+        private boolean enabled;
+        private String name = "";
+        private TimeUnit unit = TimeUnit.SECONDS;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public TimeUnit getUnit() {
+            return unit;
+        }
+
+        public void setUnit(TimeUnit unit) {
+            this.unit = unit;
+        }
+    }
+}
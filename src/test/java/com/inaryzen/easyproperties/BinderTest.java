@@ -0,0 +1,92 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class BinderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void findBinder() throws Exception {
+        assertNotNull(Metadata.prepareMetadata(BoundBean.class, "app.properties").getBinder());
+        assertNotNull(Metadata.prepareMetadata(BoundBean.class, "app.properties").getValidator());
+        assertNull(Metadata.prepareMetadata(PropertiesManagerTest.PropertiesBean.class, "app.properties").getBinder());
+    }
+
+    /**
+     * Registers the class that has a binder, saves it and reads it back; checks that the binder is used
+     */
+    @Test
+    public void registerWithBinder() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties").toAbsolutePath();
+        int created = BinderTest_BoundBean_PropertiesBinder.created;
+
+        PropertiesManager manager = new PropertiesManager();
+        BoundBean properties = manager.registerProperties(BoundBean.class, propertiesFile.toString());
+        properties.setId(99);
+        properties.setName("bound");
+        manager.saveProperties(properties);
+
+        manager = new PropertiesManager();
+        properties = manager.registerProperties(BoundBean.class, propertiesFile.toString());
+        assertEquals(99, properties.getId());
+        assertEquals("bound", properties.getName());
+        assertEquals(created + 2, BinderTest_BoundBean_PropertiesBinder.created);
+    }
+
+    /**
+     * Binds invalid values by the binder, checks that the constraints are checked after binding
+     */
+    @Test
+    public void validateWithBinder() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties").toAbsolutePath();
+        Files.write(propertiesFile, "id=0\n".getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            new PropertiesManager().registerProperties(BoundBean.class, propertiesFile.toString());
+            fail();
+        } catch (ValidationException e) {
+            assertEquals(Collections.singleton("id"), e.getViolations().keySet());
+        }
+        try {
+            PropertiesManager.layered(BoundBean.class, ConfigSource.defaults(Collections.singletonMap("id", "2000")));
+            fail();
+        } catch (ValidationException e) {
+            assertEquals(Collections.singleton("id"), e.getViolations().keySet());
+        }
+    }
+
+    @Settings
+    public static class BoundBean {
+        private int id = 42;
+        private String name = "name";
+
+        @Range(min = 1, max = 1000)
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.inaryzen.easyproperties;
+
+import java.util.Properties;
+
+/**
+ * The binder the annotation processor generates for {@link BinderTest.BoundBean}; counts created instances, so tests
+ * can check that it has been preferred over reflection.
+ */
+public final class BinderTest_BoundBean_PropertiesBinder extends Binder<BinderTest.BoundBean> {
+    static int created;
+
+    @Override
+    public Class<BinderTest.BoundBean> getSettingsClass() {
+        return BinderTest.BoundBean.class;
+    }
+
+    @Override
+    public boolean hasConstraints() {
+        return true;
+    }
+
+    @Override
+    public BinderTest.BoundBean newInstance() {
+        created++;
+        return new BinderTest.BoundBean();
+    }
+
+    @Override
+    public void bind(BinderTest.BoundBean instance, Properties properties) {
+        String value;
+        value = properties.getProperty("id");
+        if (value != null) {
+            value = checkLoadedValue(value);
+            instance.setId(Integer.parseInt(value));
+        }
+        value = properties.getProperty("name");
+        if (value != null) {
+            value = checkLoadedValue(value);
+            instance.setName(value);
+        }
+    }
+
+    @Override
+    public void store(BinderTest.BoundBean instance, Properties properties) {
+        properties.setProperty("id", String.valueOf(instance.getId()));
+        properties.setProperty("name", storedValue(instance.getName()));
+    }
+}
@@ -0,0 +1,231 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConvertersTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Saves properties of all the built-in types and a type supported by a provider, loads them by another manager
+     */
+    @Test
+    public void saveAndLoad() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+
+        PropertiesManager manager = new PropertiesManager();
+        ConvertedBean bean = manager.registerProperties(ConvertedBean.class, propertiesFile.toString());
+        bean.setUnit(TimeUnit.HOURS);
+        bean.setTimeout(Duration.ofSeconds(90));
+        bean.setHome(Paths.get("data", "home"));
+        bean.setAmount(new BigDecimal("12.50"));
+        bean.setPorts(Arrays.asList(80, 443));
+        bean.setTags(new String[]{"a,b", "c\\d", ""});
+        bean.setWeights(new int[]{1, 2, 3});
+        bean.setPrice(new Money(1999));
+        manager.saveProperties(bean);
+
+        ConvertedBean loaded = new PropertiesManager().registerProperties(ConvertedBean.class, propertiesFile.toString());
+        assertEquals(TimeUnit.HOURS, loaded.getUnit());
+        assertEquals(Duration.ofSeconds(90), loaded.getTimeout());
+        assertEquals(Paths.get("data", "home"), loaded.getHome());
+        assertEquals(new BigDecimal("12.50"), loaded.getAmount());
+        assertEquals(Arrays.asList(80, 443), loaded.getPorts());
+        assertArrayEquals(new String[]{"a,b", "c\\d", ""}, loaded.getTags());
+        assertArrayEquals(new int[]{1, 2, 3}, loaded.getWeights());
+        assertEquals(1999, loaded.getPrice().cents);
+    }
+
+    /**
+     * Modifies lists and arrays of an updated snapshot in place, checks that the previous snapshot keeps its values
+     */
+    @Test
+    public void snapshotCopiesListsAndArrays() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "ports=80,443\ntags=a,b\nweights=1,2\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        SnapshotProperties<ConvertedBean> snapshot = new PropertiesManager().registerSnapshot(ConvertedBean.class,
+                propertiesFile.toString());
+        ConvertedBean original = snapshot.get();
+        ConvertedBean updated = snapshot.update(b -> {
+            b.getPorts().set(0, 8080);
+            b.getTags()[0] = "x";
+            b.getWeights()[0] = 9;
+        });
+        assertEquals(Arrays.asList(80, 443), original.getPorts());
+        assertArrayEquals(new String[]{"a", "b"}, original.getTags());
+        assertArrayEquals(new int[]{1, 2}, original.getWeights());
+        assertEquals(Arrays.asList(8080, 443), updated.getPorts());
+        assertArrayEquals(new String[]{"x", "b"}, updated.getTags());
+        assertArrayEquals(new int[]{9, 2}, updated.getWeights());
+    }
+
+    /**
+     * Saves arrays with a single empty element and with no elements, checks that they are loaded as they were saved
+     */
+    @Test
+    public void emptyElement() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+
+        PropertiesManager manager = new PropertiesManager();
+        ConvertedBean bean = manager.registerProperties(ConvertedBean.class, propertiesFile.toString());
+        bean.setTags(new String[]{""});
+        manager.saveProperties(bean);
+        assertArrayEquals(new String[]{""},
+                new PropertiesManager().registerProperties(ConvertedBean.class, propertiesFile.toString()).getTags());
+
+        bean.setTags(new String[0]);
+        manager.saveProperties(bean);
+        assertArrayEquals(new String[0],
+                new PropertiesManager().registerProperties(ConvertedBean.class, propertiesFile.toString()).getTags());
+
+        assertEquals(Collections.singletonList(""), Converters.split("\\0"));
+        assertEquals(Arrays.asList("", "a", ""), Converters.split("\\0,a,\\0"));
+    }
+
+    @Test
+    public void find() throws Exception {
+        Converters converters = Converters.getDefault();
+        assertSame(Converters.INT, converters.find(int.class));
+        assertTrue(converters.find(long.class) instanceof LongConverter);
+        assertTrue(converters.find(ConvertedBean.class.getMethod("getPrice").getGenericReturnType()) instanceof MoneyConverter);
+        assertNull(converters.find(BigInteger.class));
+        assertNull(converters.find(BigInteger[].class));
+        assertNull(converters.find(ConvertedBean.class.getMethod("getUnsupported").getGenericReturnType()));
+        assertEquals(Collections.emptyList(), Converters.split(""));
+        assertEquals(Arrays.asList("a,b", ""), Converters.split("a\\,b,"));
+    }
+
+    public static class Money {
+        final long cents;
+
+        Money(long cents) {
+            this.cents = cents;
+        }
+    }
+
+    public static class MoneyConverter implements Converter<Money> {
+        @Override
+        public Money parse(String value) {
+            return new Money(new BigDecimal(value).movePointRight(2).longValueExact());
+        }
+
+        @Override
+        public String format(Money value) {
+            return BigDecimal.valueOf(value.cents, 2).toPlainString();
+        }
+    }
+
+    /**
+     * Registered in META-INF/services of the tests
+     */
+    public static class MoneyProvider implements ConverterProvider {
+        @Override
+        public Converter<?> find(Type type, Converters converters) {
+            return type == Money.class ? new MoneyConverter() : null;
+        }
+    }
+
+    public static class ConvertedBean {
+        private TimeUnit unit = TimeUnit.SECONDS;
+        private Duration timeout = Duration.ZERO;
+        private Path home = Paths.get(".");
+        private BigDecimal amount = BigDecimal.ZERO;
+        private List<Integer> ports = Collections.emptyList();
+        private String[] tags = {};
+        private int[] weights = {};
+        private Money price = new Money(0);
+
+        public TimeUnit getUnit() {
+            return unit;
+        }
+
+        public void setUnit(TimeUnit unit) {
+            this.unit = unit;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public Path getHome() {
+            return home;
+        }
+
+        public void setHome(Path home) {
+            this.home = home;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public List<Integer> getPorts() {
+            return ports;
+        }
+
+        public void setPorts(List<Integer> ports) {
+            this.ports = ports;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public void setTags(String[] tags) {
+            this.tags = tags;
+        }
+
+        public int[] getWeights() {
+            return weights;
+        }
+
+        public void setWeights(int[] weights) {
+            this.weights = weights;
+        }
+
+        public Money getPrice() {
+            return price;
+        }
+
+        public void setPrice(Money price) {
+            this.price = price;
+        }
+
+        /**
+         * Not a property: there is no setter
+         */
+        public List<BigInteger> getUnsupported() {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LayeredPropertiesTest {
+    private static final String PREFIX = "layered.test.";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void clearSystemProperties() {
+        System.clearProperty(PREFIX + "id");
+    }
+
+    /**
+     * Defines properties in several layers, checks that later layers override earlier ones
+     */
+    @Test
+    public void layerOrder() throws Exception {
+        File shared = folder.newFile("shared.properties");
+        write(shared, "id=2\nname=shared\nprice=2.5\n");
+        File host = folder.newFile("host.properties");
+        write(host, "name=host\n");
+        System.setProperty(PREFIX + "id", "5");
+
+        LayeredProperties<LayeredBean> layered = PropertiesManager.layered(LayeredBean.class,
+                ConfigSource.defaults(Collections.singletonMap("price", "1.5")),
+                ConfigSource.file(shared.getPath()),
+                ConfigSource.file(host.getPath()),
+                ConfigSource.environment(""),
+                ConfigSource.systemProperties(PREFIX));
+
+        LayeredBean bean = layered.get();
+        assertEquals(5, bean.getId());
+        assertEquals("host", bean.getName());
+        assertEquals(2.5, bean.getPrice(), 0.0);
+        assertEquals(System.getenv("PATH"), bean.getPath());
+        assertEquals("host", layered.getValue("name"));
+        assertNull(layered.getValue("unknown"));
+    }
+
+    /**
+     * Refreshes the instance without changes and after changes of a file and a system property, checks that the
+     * instance is replaced only in the latter cases
+     */
+    @Test
+    public void refresh() throws Exception {
+        File shared = folder.newFile("shared.properties");
+        write(shared, "name=shared\n");
+
+        LayeredProperties<LayeredBean> layered = PropertiesManager.layered(LayeredBean.class,
+                ConfigSource.file(shared.getPath()), ConfigSource.systemProperties(PREFIX));
+        LayeredBean first = layered.get();
+        assertFalse(layered.refresh());
+        assertSame(first, layered.get());
+
+        write(shared, "name=changed file\n");
+        assertTrue(layered.refresh());
+        assertNotSame(first, layered.get());
+        assertEquals("changed file", layered.get().getName());
+
+        System.setProperty(PREFIX + "id", "7");
+        assertTrue(layered.refresh());
+        assertEquals(7, layered.get().getId());
+        assertEquals("changed file", layered.get().getName());
+    }
+
+    /**
+     * Layers a class that has a generated binder, checks that the binder binds the merged values
+     */
+    @Test
+    public void withBinder() throws Exception {
+        System.setProperty(PREFIX + "id", "9");
+        int created = BinderTest_BoundBean_PropertiesBinder.created;
+
+        LayeredProperties<BinderTest.BoundBean> layered = PropertiesManager.layered(BinderTest.BoundBean.class,
+                ConfigSource.defaults(Collections.singletonMap("name", "layer")),
+                ConfigSource.systemProperties(PREFIX));
+
+        assertEquals(9, layered.get().getId());
+        assertEquals("layer", layered.get().getName());
+        assertEquals("9", layered.getValue("id"));
+        assertNull(layered.getValue("unknown"));
+        // one instance gives the property names, the other one is bound
+        assertEquals(created + 2, BinderTest_BoundBean_PropertiesBinder.created);
+    }
+
+    private static void write(File file, String content) throws Exception {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write(content);
+            writer.flush();
+        }
+    }
+
+    public static class LayeredBean {
+        private int id = 1;
+        private String name = "default";
+        private double price;
+        private String path = "";
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+    }
+}
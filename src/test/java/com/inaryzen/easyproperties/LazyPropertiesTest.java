@@ -0,0 +1,128 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyPropertiesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Loads a file with an invalid value, checks that properties are bound one by one on request and the invalid one
+     * fails only when it is requested
+     */
+    @Test
+    public void bindOnRequest() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "count=5\nname=lazy\nprice=not a number\nunknown=1\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        LazyProperties<LazyBean> lazy = new PropertiesManager().registerLazy(LazyBean.class, propertiesFile.toString());
+        assertEquals(4, lazy.size());
+        assertEquals(3, lazy.getLoadedCount());
+        assertEquals(0, lazy.getBoundCount());
+        assertEquals("lazy", lazy.getRawValue("name"));
+        assertNull(lazy.getRawValue("enabled"));
+
+        assertEquals(5, lazy.get("count"));
+        assertEquals(5, lazy.get(PropertyKey.of(LazyBean.class, "count")));
+        assertTrue(lazy.isBound("count"));
+        assertFalse(lazy.isBound("name"));
+        assertEquals(1, lazy.getBoundCount());
+
+        assertEquals("lazy", lazy.get("name"));
+        assertEquals(2, lazy.getBoundCount());
+
+        try {
+            lazy.get("price");
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        assertFalse(lazy.isBound("price"));
+        assertEquals(2, lazy.getBoundCount());
+
+        try {
+            lazy.get("unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Changes a property and saves the instance, checks that the other properties are saved with the values of the
+     * file
+     */
+    @Test
+    public void save() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "count=5\nname=lazy\nprice=1.5\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        LazyProperties<LazyBean> lazy = PropertiesManager.lazy(LazyBean.class, propertiesFile.toString());
+        lazy.get().setCount(6);
+        lazy.save();
+        assertEquals(4, lazy.getBoundCount());
+
+        Properties saved = new Properties();
+        try (InputStream in = Files.newInputStream(propertiesFile)) {
+            saved.load(in);
+        }
+        assertEquals("6", saved.getProperty("count"));
+        assertEquals("lazy", saved.getProperty("name"));
+        assertEquals("1.5", saved.getProperty("price"));
+        assertEquals("false", saved.getProperty("enabled"));
+    }
+
+    public static class LazyBean {
+        private int count;
+        private String name = "";
+        private double price;
+        private boolean enabled;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LivePropertiesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Watches a property file, changes it a few times, checks that a new instance is published and listeners get
+     * only the names of the changed properties
+     */
+    @Test
+    public void reloadOnChange() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve(PropertiesManagerTest.PROPERTIES_FILE).toAbsolutePath();
+        write(propertiesFile, "id=1\nname=first\n");
+
+        PropertiesManager manager = new PropertiesManager();
+        LiveProperties<PropertiesManagerTest.PropertiesBean> live =
+                manager.watchProperties(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+        PropertiesManagerTest.PropertiesBean first = live.get();
+        assertEquals(1, first.getId());
+
+        BlockingQueue<Set<String>> changes = new ArrayBlockingQueue<>(10);
+        live.addListener((previous, current, changed) -> changes.add(changed));
+        try {
+            write(propertiesFile, "id=2\nname=first\n");
+            Set<String> changed = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changed);
+            assertEquals(Collections.singleton("id"), changed);
+            assertNotSame(first, live.get());
+            assertEquals(2, live.get().getId());
+            assertEquals(1, first.getId());
+
+            write(propertiesFile, "id=3\nname=second\n");
+            changed = changes.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changed);
+            assertEquals(new HashSet<>(Arrays.asList("id", "name")), changed);
+            assertEquals("second", live.get().getName());
+        } finally {
+            live.close();
+        }
+    }
+
+    /**
+     * Writes an invalid value to a watched file, checks that the current instance is kept
+     */
+    @Test
+    public void keepInstanceOnInvalidFile() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve(PropertiesManagerTest.PROPERTIES_FILE).toAbsolutePath();
+        write(propertiesFile, "id=1\n");
+
+        PropertiesManager manager = new PropertiesManager();
+        LiveProperties<PropertiesManagerTest.PropertiesBean> live =
+                manager.watchProperties(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+        PropertiesManagerTest.PropertiesBean first = live.get();
+
+        BlockingQueue<Set<String>> changes = new ArrayBlockingQueue<>(10);
+        live.addListener((previous, current, changed) -> changes.add(changed));
+        try {
+            write(propertiesFile, "id=invalid\n");
+            write(propertiesFile, "id=invalid\nname=x\n");
+            Thread.sleep(FileWatcher.DEBOUNCE_MILLIS * 5);
+            assertSame(first, live.get());
+
+            write(propertiesFile, "id=5\n");
+            assertNotNull(changes.poll(10, TimeUnit.SECONDS));
+            assertEquals(5, live.get().getId());
+        } finally {
+            live.close();
+        }
+    }
+
+    /**
+     * Closes a watched instance, checks that the class can be registered again
+     */
+    @Test
+    public void closeUnregisters() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve(PropertiesManagerTest.PROPERTIES_FILE).toAbsolutePath();
+        write(propertiesFile, "id=1\n");
+
+        PropertiesManager manager = new PropertiesManager();
+        LiveProperties<PropertiesManagerTest.PropertiesBean> live =
+                manager.watchProperties(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+        live.close();
+        assertEquals(1, live.get().getId());
+
+        live = manager.watchProperties(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+        live.close();
+        assertEquals(1, manager.registerProperties(PropertiesManagerTest.PropertiesBean.class,
+                propertiesFile.toString()).getId());
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
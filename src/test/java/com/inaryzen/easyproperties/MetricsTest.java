@@ -0,0 +1,135 @@
+package com.inaryzen.easyproperties;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Loads, saves twice and loads an invalid file, checks the measurements passed to the listener combined with
+     * Flight Recorder events
+     */
+    @Test
+    public void listener() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties").toAbsolutePath();
+        Files.write(propertiesFile, "id=5\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        List<String> calls = new ArrayList<>();
+        long[] savedBytes = new long[1];
+        PropertiesManager manager = new PropertiesManager();
+        manager.setMetricsListener(MetricsListener.flightRecorder().andThen(new MetricsListener() {
+            @Override
+            public void loaded(Path file, Class<?> settingsClass, long introspectionNanos, long readNanos,
+                               long bindNanos) {
+                assertTrue(introspectionNanos >= 0 && readNanos >= 0 && bindNanos >= 0);
+                calls.add("loaded " + settingsClass.getSimpleName());
+            }
+
+            @Override
+            public void saved(Path file, Class<?> settingsClass, long bytes, long nanos) {
+                savedBytes[0] = bytes;
+                calls.add("saved");
+            }
+
+            @Override
+            public void saveSkipped(Path file, Class<?> settingsClass) {
+                calls.add("skipped");
+            }
+
+            @Override
+            public void conversionFailed(Path file, Class<?> settingsClass, String propertyName,
+                                         RuntimeException error) {
+                calls.add("failed " + propertyName);
+            }
+
+            @Override
+            public void lockAcquired(Path file, long nanos) {
+                assertEquals(propertiesFile, file);
+                calls.add("locked");
+            }
+        }));
+
+        PropertiesManagerTest.PropertiesBean bean = manager.registerProperties(PropertiesManagerTest.PropertiesBean.class,
+                propertiesFile.toString());
+        bean.setId(6);
+        manager.saveProperties(bean);
+        manager.saveProperties(bean);
+        assertEquals(Files.size(propertiesFile), savedBytes[0]);
+
+        Files.write(propertiesFile, "id=invalid\n".getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            manager.registerInstance(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+            fail();
+        } catch (NumberFormatException e) {
+            // expected
+        }
+
+        List<String> expected = new ArrayList<>();
+        expected.add("locked");
+        expected.add("loaded PropertiesBean");
+        expected.add("locked");
+        expected.add("saved");
+        expected.add("locked");
+        expected.add("skipped");
+        expected.add("locked");
+        expected.add("failed id");
+        assertEquals(expected, calls);
+    }
+
+    /**
+     * Records loads and saves by Flight Recorder, checks the recorded events; a manager with the default listener
+     * emits no events
+     */
+    @Test
+    public void flightRecorderEvents() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Path recordingFile = folder.getRoot().toPath().resolve("recording.jfr");
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.inaryzen.easyproperties.Load");
+            recording.enable("com.inaryzen.easyproperties.Save");
+            recording.start();
+
+            new PropertiesManager().registerInstance(PropertiesManagerTest.PropertiesBean.class,
+                    propertiesFile.toString());
+            PropertiesManager manager = new PropertiesManager();
+            manager.setMetricsListener(MetricsListener.flightRecorder());
+            PropertiesManagerTest.PropertiesBean bean = manager.registerInstance(
+                    PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+            manager.saveProperties(bean);
+            manager.registerInstance(PropertiesManagerTest.PropertiesBean.class, propertiesFile.toString());
+
+            recording.stop();
+            recording.dump(recordingFile);
+            events = RecordingFile.readAllEvents(recordingFile);
+        }
+
+        List<String> names = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            names.add(event.getEventType().getName());
+            if (event.getEventType().getName().endsWith("Save"))
+                assertEquals(Files.size(propertiesFile), event.getLong("bytes"));
+        }
+        List<String> expected = new ArrayList<>();
+        expected.add("com.inaryzen.easyproperties.Save");
+        expected.add("com.inaryzen.easyproperties.Load");
+        assertEquals(expected, names);
+    }
+}
@@ -0,0 +1,250 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+public class NestedPropertyTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Loads a file with nested beans, lists and maps, changes and saves them, checks that another manager loads the
+     * same values
+     */
+    @Test
+    public void bindAndSave() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, ("name=app\n"
+                + "db.host=localhost\n"
+                + "db.pool.max=20\n"
+                + "servers[2].host=b\n"
+                + "servers[10].host=c\n"
+                + "servers[0].host=a\n"
+                + "servers[0].port=8080\n"
+                + "labels.team=core\n"
+                + "labels.owner.email=core@example.com\n"
+                + "tenants.acme.quota=5\n"
+                + "unknown.key=1\n").getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertiesManager manager = new PropertiesManager();
+        NestedBean bean = manager.registerProperties(NestedBean.class, propertiesFile.toString());
+        assertEquals("app", bean.getName());
+        assertEquals("localhost", bean.getDb().getHost());
+        assertEquals(20, bean.getDb().getPool().getMax());
+        assertEquals(1, bean.getDb().getPool().getMin());
+        assertEquals(3, bean.getServers().size());
+        assertEquals("a", bean.getServers().get(0).getHost());
+        assertEquals(8080, bean.getServers().get(0).getPort());
+        assertEquals("b", bean.getServers().get(1).getHost());
+        assertEquals(80, bean.getServers().get(1).getPort());
+        assertEquals("c", bean.getServers().get(2).getHost());
+        Map<String, String> labels = new HashMap<>();
+        labels.put("team", "core");
+        labels.put("owner.email", "core@example.com");
+        assertEquals(labels, bean.getLabels());
+        assertEquals(5, bean.getTenants().get("acme").getQuota());
+
+        bean.getDb().getPool().setMax(30);
+        bean.getServers().remove(2);
+        bean.getTenants().put("globex", new Tenant());
+        manager.saveProperties(bean);
+        assertFalse(manager.isDirty(bean));
+
+        NestedBean loaded = new PropertiesManager().registerProperties(NestedBean.class, propertiesFile.toString());
+        assertEquals(30, loaded.getDb().getPool().getMax());
+        assertEquals(Arrays.asList("a", "b"), hosts(loaded.getServers()));
+        assertEquals(labels, loaded.getLabels());
+        assertEquals(5, loaded.getTenants().get("acme").getQuota());
+        assertEquals(10, loaded.getTenants().get("globex").getQuota());
+    }
+
+    /**
+     * Updates a snapshot of a class with nested beans, checks that the copy shares no beans with the original
+     */
+    @Test
+    public void snapshotCopy() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "servers[0].host=a\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        SnapshotProperties<NestedBean> snapshot = new PropertiesManager().registerSnapshot(NestedBean.class,
+                propertiesFile.toString());
+        NestedBean original = snapshot.get();
+        NestedBean updated = snapshot.update(b -> b.getServers().get(0).setHost("b"));
+        assertNotSame(original.getDb(), updated.getDb());
+        assertEquals("a", original.getServers().get(0).getHost());
+        assertEquals("b", updated.getServers().get(0).getHost());
+    }
+
+    @Test
+    public void invalidListKey() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "servers[x].host=a\n".getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            new PropertiesManager().registerProperties(NestedBean.class, propertiesFile.toString());
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("Invalid key of list element: servers[x].host", e.getMessage());
+        }
+    }
+
+    @Test
+    public void nullMapValue() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        PropertiesManager manager = new PropertiesManager();
+        NestedBean bean = manager.registerProperties(NestedBean.class, propertiesFile.toString());
+        bean.setLabels(Collections.singletonMap("team", null));
+        try {
+            manager.saveProperties(bean);
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("The implementation doesn't support null values: labels.team", e.getMessage());
+        }
+    }
+
+    private static List<String> hosts(List<Server> servers) {
+        List<String> hosts = new ArrayList<>();
+        for (Server server : servers)
+            hosts.add(server.getHost());
+        return hosts;
+    }
+
+    public static class NestedBean {
+        private String name = "";
+        private Db db = new Db();
+        private List<Server> servers = new ArrayList<>();
+        private Map<String, String> labels = Collections.emptyMap();
+        private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Db getDb() {
+            return db;
+        }
+
+        public void setDb(Db db) {
+            this.db = db;
+        }
+
+        public List<Server> getServers() {
+            return servers;
+        }
+
+        public void setServers(List<Server> servers) {
+            this.servers = servers;
+        }
+
+        public Map<String, String> getLabels() {
+            return labels;
+        }
+
+        public void setLabels(Map<String, String> labels) {
+            this.labels = labels;
+        }
+
+        public Map<String, Tenant> getTenants() {
+            return tenants;
+        }
+
+        public void setTenants(Map<String, Tenant> tenants) {
+            this.tenants = tenants;
+        }
+    }
+
+    public static class Db {
+        private String host = "";
+        private Pool pool = new Pool();
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public Pool getPool() {
+            return pool;
+        }
+
+        public void setPool(Pool pool) {
+            this.pool = pool;
+        }
+    }
+
+    public static class Pool {
+        private int min = 1;
+        private int max = 10;
+
+        public int getMin() {
+            return min;
+        }
+
+        public void setMin(int min) {
+            this.min = min;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        public void setMax(int max) {
+            this.max = max;
+        }
+    }
+
+    public static class Server {
+        private String host = "";
+        private int port = 80;
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+    }
+
+    public static class Tenant {
+        private int quota = 10;
+
+        public int getQuota() {
+            return quota;
+        }
+
+        public void setQuota(int quota) {
+            this.quota = quota;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.inaryzen.easyproperties;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PropertiesManagerConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Registers the same class from many threads at once, checks that exactly one registration succeeds
+     */
+    @Test
+    public void concurrentRegistration() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        PropertiesManager manager = new PropertiesManager();
+        AtomicInteger registered = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> () -> {
+            try {
+                manager.registerProperties(PairBean.class, propertiesFile.toString());
+                registered.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+                rejected.incrementAndGet();
+            }
+            return null;
+        });
+
+        assertEquals(1, registered.get());
+        assertEquals(THREADS - 1, rejected.get());
+    }
+
+    /**
+     * Saves one file from many managers while other managers keep reading it, checks that readers always see
+     * a complete file written by one of the writers
+     */
+    @Test
+    public void concurrentSavesOfSameFile() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        PropertiesManager initial = new PropertiesManager();
+        PairBean bean = initial.registerProperties(PairBean.class, propertiesFile.toString());
+        bean.setId(0);
+        bean.setName("name-0");
+        initial.saveProperties(bean);
+
+        runConcurrently(THREADS, thread -> () -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (thread % 2 == 0) {
+                    PropertiesManager manager = new PropertiesManager();
+                    PairBean writer = manager.registerProperties(PairBean.class, propertiesFile.toString());
+                    int id = thread * ITERATIONS + i;
+                    writer.setId(id);
+                    writer.setName("name-" + id);
+                    manager.saveProperties(writer);
+                } else {
+                    PairBean reader = new PropertiesManager().registerProperties(PairBean.class, propertiesFile.toString());
+                    assertEquals("name-" + reader.getId(), reader.getName());
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Saves different files from many threads through one manager, checks that every file holds the last value
+     */
+    @Test
+    public void concurrentSavesOfDifferentFiles() throws Exception {
+        Path folderPath = folder.getRoot().toPath();
+        PropertiesManager manager = new PropertiesManager();
+        List<Object> beans = new ArrayList<>();
+        beans.add(manager.registerProperties(PairBean.class, folderPath.resolve("pair.properties").toString()));
+        beans.add(manager.registerProperties(CounterBean.class, folderPath.resolve("counter.properties").toString()));
+        beans.add(manager.registerProperties(PropertiesManagerTest.PropertiesBean.class,
+                folderPath.resolve("bean.properties").toString()));
+
+        runConcurrently(beans.size(), thread -> () -> {
+            Object bean = beans.get(thread);
+            for (int i = 1; i <= ITERATIONS; i++) {
+                if (bean instanceof PairBean)
+                    ((PairBean) bean).setId(i);
+                else if (bean instanceof CounterBean)
+                    ((CounterBean) bean).setCount(i);
+                else
+                    ((PropertiesManagerTest.PropertiesBean) bean).setId(i);
+                manager.saveProperties(bean);
+            }
+            return null;
+        });
+
+        PropertiesManager reader = new PropertiesManager();
+        assertEquals(ITERATIONS, reader.registerProperties(PairBean.class,
+                folderPath.resolve("pair.properties").toString()).getId());
+        assertEquals(ITERATIONS, reader.registerProperties(CounterBean.class,
+                folderPath.resolve("counter.properties").toString()).getCount());
+        assertEquals(ITERATIONS, reader.registerProperties(PropertiesManagerTest.PropertiesBean.class,
+                folderPath.resolve("bean.properties").toString()).getId());
+    }
+
+    /**
+     * Updates a snapshot from some threads while the others keep reading it, checks that readers always see related
+     * properties set by the same update and that no update is lost; saves the last snapshot
+     */
+    @Test
+    public void snapshotUpdates() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        PropertiesManager manager = new PropertiesManager();
+        SnapshotProperties<PairBean> snapshot = manager.registerSnapshot(PairBean.class, propertiesFile.toString());
+        PairBean initial = snapshot.get();
+
+        runConcurrently(THREADS, thread -> () -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (thread % 2 == 0) {
+                    snapshot.update(bean -> {
+                        bean.setId(bean.getId() + 1);
+                        bean.setName("name-" + bean.getId());
+                    });
+                } else {
+                    PairBean reader = snapshot.get();
+                    assertEquals(reader.getId() == 0 ? "" : "name-" + reader.getId(), reader.getName());
+                }
+            }
+            return null;
+        });
+
+        assertEquals(0, initial.getId());
+        assertEquals(THREADS / 2 * ITERATIONS, snapshot.get().getId());
+        snapshot.save();
+        assertEquals(THREADS / 2 * ITERATIONS,
+                new PropertiesManager().registerProperties(PairBean.class, propertiesFile.toString()).getId());
+    }
+
+    /**
+     * Registers and saves a few files from thousands of virtual threads while Flight Recorder records pinned virtual
+     * threads, checks that readers always see complete files and that no virtual thread has been pinned within the
+     * library; skipped on runtimes without virtual threads or without the pinning event
+     */
+    @Test
+    public void virtualThreads() throws Exception {
+        Assume.assumeTrue("jdk.VirtualThreadPinned is not supported", hasEventType("jdk.VirtualThreadPinned"));
+        ExecutorService executor = newVirtualThreadExecutor();
+        Assume.assumeTrue("virtual threads are not supported", executor != null);
+
+        Path folderPath = folder.getRoot().toPath();
+        int files = 8;
+        int tasks = 4000;
+
+        List<RecordedEvent> pinned = new ArrayList<>();
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int task = 0; task < tasks; task++) {
+                    String propertiesFile = folderPath.resolve("app" + task % files + ".properties").toString();
+                    int id = task + 1;
+                    futures.add(executor.submit(() -> {
+                        PropertiesManager manager = new PropertiesManager();
+                        PairBean bean = manager.registerInstance(PairBean.class, propertiesFile);
+                        assertEquals(bean.getId() == 0 ? "" : "name-" + bean.getId(), bean.getName());
+                        if (id % 2 == 0) {
+                            bean.setId(id);
+                            bean.setName("name-" + id);
+                            manager.saveProperties(bean);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures)
+                    future.get(60, TimeUnit.SECONDS);
+            } finally {
+                executor.shutdownNow();
+                assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            }
+
+            recording.stop();
+            Path recordingFile = folderPath.resolve("recording.jfr");
+            recording.dump(recordingFile);
+            for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                if (event.getStackTrace() == null)
+                    continue;
+                for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                    if (frame.getMethod().getType().getName().startsWith(PropertiesManager.class.getPackage().getName())) {
+                        pinned.add(event);
+                        break;
+                    }
+                }
+            }
+        }
+        assertEquals(Collections.<RecordedEvent>emptyList(), pinned);
+    }
+
+    /**
+     * Checks that no class of the library has synchronized methods, which pin virtual threads before Java 24; unlike
+     * {@link #virtualThreads()}, runs on any runtime
+     */
+    @Test
+    public void noSynchronizedMethods() throws Exception {
+        Path classes = Paths.get(PropertiesManager.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        List<String> synchronizedMethods = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                String relative = classes.relativize(file).toString();
+                String className = relative.substring(0, relative.length() - ".class".length())
+                        .replace(file.getFileSystem().getSeparator(), ".");
+                for (Method method : Class.forName(className, false, getClass().getClassLoader()).getDeclaredMethods()) {
+                    if (Modifier.isSynchronized(method.getModifiers()))
+                        synchronizedMethods.add(method.toString());
+                }
+            }
+        }
+        assertEquals(Collections.<String>emptyList(), synchronizedMethods);
+    }
+
+    /**
+     * Virtual threads are created by reflection, since the sources target Java 8.
+     *
+     * @return null if the runtime has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean hasEventType(String name) {
+        for (EventType type : FlightRecorder.getFlightRecorder().getEventTypes()) {
+            if (type.getName().equals(name))
+                return true;
+        }
+        return false;
+    }
+
+    private interface TaskFactory {
+        Callable<Void> create(int thread);
+    }
+
+    private static void runConcurrently(int threads, TaskFactory factory) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                Callable<Void> task = factory.create(thread);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public static class PairBean {
+        private int id;
+        private String name = "";
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class CounterBean {
+        private long count;
+
+        public long getCount() {
+            return count;
+        }
+
+        public void setCount(long count) {
+            this.count = count;
+        }
+    }
+}
@@ -9,10 +9,26 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -143,6 +159,131 @@ public class PropertiesManagerTest {
         assertEquals(PRICE_1, properties.getPrice(), 0.0);
     }
 
+    /**
+     * Requests several asynchronous saves within the save delay, checks that they share one write and the file holds
+     * the values set before the last request
+     */
+    @Test
+    public void savePropertiesAsync() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        Path propertiesFile = tmpFolder.resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        PropertiesManager manager = new PropertiesManager();
+        manager.setSaveDelay(200);
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        properties.setId(ID_2);
+        CompletableFuture<Void> first = manager.savePropertiesAsync(properties);
+        properties.setName(NAME_2);
+        CompletableFuture<Void> second = manager.savePropertiesAsync(properties);
+        assertSame(first, second);
+        second.get(10, TimeUnit.SECONDS);
+        CompletableFuture<Void> third = manager.savePropertiesAsync(properties);
+        assertNotSame(first, third);
+        third.get(10, TimeUnit.SECONDS);
+
+        manager = new PropertiesManager();
+        properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        assertEquals(ID_2, properties.getId());
+        assertEquals(NAME_2, properties.getName());
+    }
+
+    /**
+     * Saves properties a few times, checks that no temporary files are left next to the property file
+     */
+    @Test
+    public void atomicSave() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        Path propertiesFile = tmpFolder.resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        PropertiesManager manager = new PropertiesManager();
+        manager.setSyncWrites(true);
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        for (int i = 0; i < 3; i++) {
+            properties.setId(i);
+            manager.saveProperties(properties);
+        }
+
+        try (Stream<Path> files = Files.list(tmpFolder)) {
+            assertEquals(Collections.singletonList(propertiesFile), files.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Loads a complete property file, changes a value, checks the dirty state before and after saving and that
+     * saving unchanged values does not rewrite the file
+     */
+    @Test
+    public void dirtyTracking() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        Path propertiesFile = tmpFolder.resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        File file = folder.newFile(PROPERTIES_FILE);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("id=" + ID_2 + "\n");
+            writer.write("price=" + PRICE_2 + "\n");
+            writer.write("name=" + NAME_2 + "\n");
+            writer.flush();
+        }
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        assertFalse(manager.isDirty(properties));
+
+        properties.setName(NAME_1);
+        assertTrue(manager.isDirty(properties));
+        assertEquals(Collections.singleton("name"), manager.changedProperties(properties));
+
+        manager.saveProperties(properties);
+        assertFalse(manager.isDirty(properties));
+        Object fileKey = Files.readAttributes(propertiesFile, BasicFileAttributes.class).fileKey();
+
+        manager.saveProperties(properties);
+        assertEquals(fileKey, Files.readAttributes(propertiesFile, BasicFileAttributes.class).fileKey());
+    }
+
+    /**
+     * Saves properties, replaces the file with another content of the same size and modification time, checks that
+     * saving unchanged values restores the file
+     */
+    @Test
+    public void saveOverSameSizeEdit() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        properties.setId(ID_1);
+        manager.saveProperties(properties);
+
+        String content = new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1);
+        FileTime lastModified = Files.getLastModifiedTime(propertiesFile);
+        Files.write(propertiesFile, content.replace("id=" + ID_1, "id=" + ID_2).getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(propertiesFile, lastModified);
+
+        manager.saveProperties(properties);
+        assertEquals(content, new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Registers properties without a file, checks that all of them are dirty, and that a save restores a file
+     * deleted after the instance has been saved
+     */
+    @Test
+    public void dirtyTrackingWithoutFile() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        Path propertiesFile = tmpFolder.resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        assertEquals(new HashSet<>(Arrays.asList("id", "name", "price")), manager.changedProperties(properties));
+
+        manager.saveProperties(properties);
+        assertFalse(manager.isDirty(properties));
+
+        Files.delete(propertiesFile);
+        manager.saveProperties(properties);
+        assertTrue(Files.exists(propertiesFile));
+    }
+
     /**
      * Register new property instance, saves null value for a field, tries to execute saveProperties
      */
@@ -173,6 +314,145 @@ public class PropertiesManagerTest {
         properties.setBigId(new BigInteger("42"));
     }
 
+    /**
+     * Preloads metadata of the property class, checks that every registration shares the same mapping
+     */
+    @Test
+    public void preloadMetadata() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        Path propertiesFile = tmpFolder.resolve(PROPERTIES_FILE).toAbsolutePath();
+
+        PropertiesManager.preload(PropertiesBean.class);
+        Metadata first = Metadata.prepareMetadata(PropertiesBean.class, propertiesFile.toString());
+        Metadata second = Metadata.prepareMetadata(PropertiesBean.class, "other.properties");
+        assertSame(first.getMapping(), second.getMapping());
+        assertEquals(3, first.getMapping().size());
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean properties = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        assertEquals(ID_1, properties.getId());
+    }
+
+    /**
+     * Preloads metadata of the class that has properties of unsupported types
+     */
+    @Test
+    public void preloadInvalidPropertyType() throws Exception {
+        thrown.expect(RuntimeException.class);
+        PropertiesManager.preload(InvalidPropertyBean.class);
+    }
+
+    /**
+     * Registers several classes at once, one of them has properties of unsupported types and one has a private
+     * constructor; checks that the failure is reported for its class only
+     */
+    @Test
+    public void registerAllProperties() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        File file = folder.newFile(PROPERTIES_FILE);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("id=" + ID_2 + "\n");
+            writer.flush();
+        }
+
+        Map<Class<?>, String> registrations = new LinkedHashMap<>();
+        registrations.put(PropertiesBean.class, file.getAbsolutePath());
+        registrations.put(InvalidPropertyBean.class, tmpFolder.resolve("invalid.properties").toString());
+        registrations.put(PrivateConstructorBean.class, tmpFolder.resolve("private.properties").toString());
+
+        PropertiesManager manager = new PropertiesManager();
+        RegistrationResult result = manager.registerAllProperties(registrations);
+        assertTrue(result.hasErrors());
+        assertEquals(Collections.singleton(InvalidPropertyBean.class), result.getErrors().keySet());
+        assertEquals(ID_2, result.get(PropertiesBean.class).getId());
+        assertEquals(ID_1, result.get(PrivateConstructorBean.class).getId());
+        assertNull(result.get(InvalidPropertyBean.class));
+    }
+
+    /**
+     * Registers a class with a value that cannot be converted, checks that the class can be registered again
+     */
+    @Test
+    public void registerAgainAfterFailure() throws Exception {
+        File file = folder.newFile(PROPERTIES_FILE);
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            writer.write("id=invalid\n");
+            writer.flush();
+        }
+
+        PropertiesManager manager = new PropertiesManager();
+        RegistrationResult result = manager.registerAllProperties(
+                Collections.<Class<?>, String>singletonMap(PropertiesBean.class, file.getAbsolutePath()));
+        assertTrue(result.getErrors().get(PropertiesBean.class) instanceof NumberFormatException);
+
+        Files.delete(file.toPath());
+        assertEquals(ID_1, manager.registerProperties(PropertiesBean.class, file.getAbsolutePath()).getId());
+    }
+
+    /**
+     * Registers instances of one class for several files, one of them is invalid; changes and saves all the
+     * instances at once, checks that every instance is saved to its own file
+     */
+    @Test
+    public void registerInstances() throws Exception {
+        Path tmpFolder = folder.getRoot().toPath();
+        File invalid = folder.newFile("invalid.properties");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(invalid))) {
+            writer.write("id=invalid\n");
+            writer.flush();
+        }
+        String[] files = new String[10];
+        for (int i = 0; i < files.length; i++)
+            files[i] = tmpFolder.resolve("tenant" + i + ".properties").toString();
+
+        PropertiesManager manager = new PropertiesManager();
+        manager.registerProperties(PropertiesBean.class, tmpFolder.resolve(PROPERTIES_FILE).toString());
+        InstanceRegistrationResult<PropertiesBean> result = manager.registerInstances(PropertiesBean.class,
+                Stream.concat(Arrays.stream(files), Stream.of(invalid.getPath())).collect(Collectors.toList()),
+                Runnable::run, 3);
+        assertEquals(Collections.singleton(invalid.getPath()), result.getErrors().keySet());
+        assertEquals(files.length, result.getInstances().size());
+
+        for (int i = 0; i < files.length; i++)
+            result.get(files[i]).setId(i);
+        manager.saveAllProperties(result.getInstances().values());
+
+        // the instance registered for the class is not affected
+        assertFalse(Files.exists(tmpFolder.resolve(PROPERTIES_FILE)));
+
+        PropertiesManager another = new PropertiesManager();
+        PropertiesBean[] loaded = new PropertiesBean[files.length];
+        for (int i = 0; i < files.length; i++)
+            assertEquals(i, (loaded[i] = another.registerInstance(PropertiesBean.class, files[i])).getId());
+
+        another.unregister(loaded[0]);
+        thrown.expect(IllegalArgumentException.class);
+        another.saveProperties(loaded[0]);
+    }
+
+    /**
+     * Registers a snapshot, checks that copies are independent of the published instance and that an update fails
+     * once the published instance has been modified
+     */
+    @Test
+    public void snapshotModified() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve(PROPERTIES_FILE);
+        SnapshotProperties<PropertiesBean> snapshot = new PropertiesManager()
+                .registerSnapshot(PropertiesBean.class, propertiesFile.toString());
+        PropertiesBean published = snapshot.get();
+
+        PropertiesBean copy = snapshot.copy();
+        copy.setId(ID_2);
+        assertEquals(ID_1, snapshot.get().getId());
+
+        assertEquals(ID_2, snapshot.update(bean -> bean.setId(ID_2)).getId());
+        assertEquals(ID_1, published.getId());
+
+        snapshot.get().setName(NAME_2);
+        thrown.expect(IllegalStateException.class);
+        snapshot.update(bean -> bean.setPrice(PRICE_2));
+    }
+
     public static class PropertiesBean {
         private int id = ID_1;
         private String name = NAME_1;
@@ -203,6 +483,21 @@ public class PropertiesManagerTest {
         }
     }
 
+    private static class PrivateConstructorBean {
+        private int id = ID_1;
+
+        private PrivateConstructorBean() {
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+    }
+
     private static class InvalidPropertyBean {
         private BigInteger bigId = new BigInteger("1000");
 
@@ -0,0 +1,107 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PropertiesParserTest {
+    private static final List<String> KEYS = Arrays.asList("name", "id", "price", "path", "key=with:separators",
+            "description", "empty", "unicode", "tabbed", "continued");
+
+    private static final String CONTENT = "# comment = ignored\n" +
+            "! another comment \\\n" +
+            "name=first\n" +
+            "   id : 42\n" +
+            "price 10.5\n" +
+            "\n" +
+            "  \t\n" +
+            "path = C:\\\\data\\\\app\r\n" +
+            "key\\=with\\:separators = value\r" +
+            "description = multi \\\n" +
+            "     line \\\r\n" +
+            "\t  value\n" +
+            "empty\n" +
+            "unicode = \\u0041\\u00e9\\t\\n\u00e9\n" +
+            "tabbed\t=\t\ttab\n" +
+            "unknown = \\u0041\n" +
+            "name = second\n" +
+            "continued = last\\";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Parses a file with all kinds of syntax, checks that the values match the ones java.util.Properties reads
+     */
+    @Test
+    public void sameAsProperties() throws Exception {
+        byte[] content = CONTENT.getBytes(StandardCharsets.ISO_8859_1);
+        Properties expected = new Properties();
+        expected.load(new ByteArrayInputStream(content));
+
+        PropertyIndex index = index(KEYS);
+        Map<String, String> actual = new HashMap<>();
+        boolean[] found = PropertiesParser.parse(ByteBuffer.wrap(content), index,
+                (i, chars, offset, length) -> actual.put(index.name(i), new String(chars, offset, length)));
+
+        for (String key : KEYS) {
+            assertEquals(key, expected.getProperty(key), actual.get(key));
+            assertTrue(key, found[index.indexOf(key)]);
+        }
+        assertEquals("second", actual.get("name"));
+        assertEquals(KEYS.size(), actual.size());
+    }
+
+    /**
+     * Parses a large file, checks that all the known values are read and that the file has not been mapped, so it
+     * can be replaced while the buffer is alive
+     */
+    @Test
+    public void largeFile() throws Exception {
+        StringBuilder content = new StringBuilder();
+        while (content.length() < 1024 * 1024)
+            content.append("unknown").append(content.length()).append("=value\n");
+        content.append("id=42\n");
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        assertTrue(PropertiesParser.read(file).hasArray());
+
+        PropertyIndex index = index(Arrays.asList("id", "name"));
+        Map<String, String> actual = new HashMap<>();
+        boolean[] found = PropertiesParser.parse(file, index,
+                (i, chars, offset, length) -> actual.put(index.name(i), new String(chars, offset, length)));
+
+        assertEquals("42", actual.get("id"));
+        assertTrue(found[index.indexOf("id")]);
+        assertFalse(found[index.indexOf("name")]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedUnicode() throws Exception {
+        byte[] content = "name=\\u00zz\n".getBytes(StandardCharsets.ISO_8859_1);
+        PropertiesParser.parse(ByteBuffer.wrap(content), index(KEYS), (i, chars, offset, length) -> {
+        });
+    }
+
+    private static PropertyIndex index(List<String> keys) {
+        Map<String, Property> mapping = new HashMap<>();
+        for (String key : keys)
+            mapping.put(key, new Property());
+        return PropertyIndex.of(mapping);
+    }
+}
@@ -0,0 +1,103 @@
+package com.inaryzen.easyproperties;
+
+import com.inaryzen.easyproperties.PropertiesManagerTest.PropertiesBean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+public class PropertiesWriterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Changes, adds and removes keys of a hand-edited file, checks that all the other lines are kept as they are
+     */
+    @Test
+    public void patchChangedLines() throws Exception {
+        String original = "# settings\r\n"
+                + "name = first\r\n"
+                + "\r\n"
+                + "! unchanged, written differently\r\n"
+                + "enabled: TRUE\r\n"
+                + "description = multi \\\r\n"
+                + "    line\r\n"
+                + "id=1\r\n"
+                + "removed=x\r\n"
+                + "id=2\r\n"
+                + "price 10.5";
+        Map<String, String> values = new HashMap<>();
+        values.put("name", "second value");
+        values.put("enabled", "true");
+        values.put("description", "one line");
+        values.put("id", "2");
+        values.put("price", "10.5");
+        values.put("path", "C:\\data");
+        values.put("a key", "=\u00e9");
+
+        String expected = "# settings\r\n"
+                + "name = second value\r\n"
+                + "\r\n"
+                + "! unchanged, written differently\r\n"
+                + "enabled: TRUE\r\n"
+                + "description=one line\r\n"
+                + "id=2\r\n"
+                + "price 10.5\r\n"
+                + "a\\ key=\\=\\u00E9\r\n"
+                + "path=C\\:\\\\data\r\n";
+        byte[] written = PropertiesWriter.write(original.getBytes(StandardCharsets.ISO_8859_1), values,
+                Collections.singletonMap("enabled", "true"));
+        assertEquals(expected, new String(written, StandardCharsets.ISO_8859_1));
+
+        Properties loaded = new Properties();
+        loaded.load(new ByteArrayInputStream(written));
+        values.put("enabled", "TRUE");
+        assertEquals(values, PersistedState.toMap(loaded));
+    }
+
+    /**
+     * Values with all kinds of special chars are read back the same by java.util.Properties
+     */
+    @Test
+    public void escapes() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put(" key:with=separators#!", "  leading spaces");
+        values.put("whitespace", "\t\n\r\f end ");
+        values.put("unicode", "\u0000\u007f\u00ff\u20ac");
+        values.put("empty", "");
+        byte[] written = PropertiesWriter.write(new byte[0], values, Collections.<String, String>emptyMap());
+
+        Properties loaded = new Properties();
+        loaded.load(new ByteArrayInputStream(written));
+        assertEquals(values, PersistedState.toMap(loaded));
+    }
+
+    /**
+     * A registered instance is saved into a hand-edited file without a timestamp header, keeping its comments
+     */
+    @Test
+    public void saveKeepsComments() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "# application\nname = first\n\n# identifier\nid = 1\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean bean = manager.registerProperties(PropertiesBean.class, propertiesFile.toString());
+        bean.setId(2);
+        manager.saveProperties(bean);
+
+        String expected = "# application\nname = first\n\n# identifier\nid = 2\nprice="
+                + new PropertiesBean().getPrice() + "\n";
+        assertEquals(expected, new String(Files.readAllBytes(propertiesFile), StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,174 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PropertyKeyTest {
+    @Test
+    public void primitiveAccess() throws Exception {
+        KeyBean bean = new KeyBean();
+        PropertyKey<KeyBean> count = PropertyKey.of(KeyBean.class, "Count");
+        PropertyKey<KeyBean> size = PropertyKey.of(KeyBean.class, "size");
+        PropertyKey<KeyBean> price = PropertyKey.of(KeyBean.class, "price");
+        PropertyKey<KeyBean> enabled = PropertyKey.of(KeyBean.class, "enabled");
+
+        count.setInt(bean, 7);
+        size.setLong(bean, 9000000000L);
+        price.setDouble(bean, 1.5);
+        enabled.setBoolean(bean, true);
+
+        assertEquals(7, bean.getCount());
+        assertEquals(7, count.getInt(bean));
+        assertEquals(9000000000L, size.getLong(bean));
+        assertEquals(1.5, price.getDouble(bean), 0);
+        assertTrue(enabled.getBoolean(bean));
+        assertEquals("count", count.getName());
+        assertEquals(int.class, count.getType());
+
+        count.set(bean, 8);
+        size.set(bean, 1L);
+        price.set(bean, 2.5);
+        enabled.set(bean, false);
+        assertEquals(8, bean.getCount());
+        assertEquals(1L, bean.getSize());
+        assertEquals(2.5, bean.getPrice(), 0);
+        assertFalse(bean.isEnabled());
+    }
+
+    @Test
+    public void objectAccess() throws Exception {
+        KeyBean bean = new KeyBean();
+        PropertyKey<KeyBean> name = PropertyKey.of(KeyBean.class, "name");
+        PropertyKey<KeyBean> limit = PropertyKey.of(KeyBean.class, "limit");
+
+        name.set(bean, "first");
+        assertEquals("first", name.get(bean));
+        limit.setInt(bean, 3);
+        assertEquals(Integer.valueOf(3), bean.getLimit());
+        assertEquals(3, limit.getInt(bean));
+
+        PropertyKey.of(KeyBean.class, "count").setString(bean, "42");
+        assertEquals(42, PropertyKey.of(KeyBean.class, "count").get(bean));
+        assertEquals("42", PropertyKey.of(KeyBean.class, "count").getString(bean));
+    }
+
+    @Test
+    public void all() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (PropertyKey<KeyBean> key : PropertyKey.all(KeyBean.class)) {
+            assertEquals(names.size(), key.getIndex());
+            names.add(key.getName());
+        }
+        assertEquals(Arrays.asList("count", "enabled", "limit", "name", "price", "size"), names);
+    }
+
+    @Test
+    public void wrongType() throws Exception {
+        KeyBean bean = new KeyBean();
+        try {
+            PropertyKey.of(KeyBean.class, "size").getInt(bean);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Property size is of type long, not int", e.getMessage());
+        }
+        try {
+            PropertyKey.of(KeyBean.class, "name").set(bean, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        bean.setLimit(null);
+        try {
+            PropertyKey.of(KeyBean.class, "limit").getInt(bean);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Property " + KeyBean.class.getName() + "#limit is null, it has no primitive value",
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Names are lowercased the same way in every locale, e.g. "LIMIT" is not "l\u0131m\u0131t" in Turkish
+     */
+    @Test
+    public void localeIndependentNames() throws Exception {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertEquals("limit", PropertyKey.of(KeyBean.class, "LIMIT").getName());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownProperty() throws Exception {
+        PropertyKey.of(KeyBean.class, "unknown");
+    }
+
+    public static class KeyBean {
+        private int count;
+        private long size;
+        private double price;
+        private boolean enabled;
+        private String name = "";
+        private Integer limit = 0;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public double getPrice() {
+            return price;
+        }
+
+        public void setPrice(double price) {
+            this.price = price;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getLimit() {
+            return limit;
+        }
+
+        public void setLimit(Integer limit) {
+            this.limit = limit;
+        }
+    }
+}
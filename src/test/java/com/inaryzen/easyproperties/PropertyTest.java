@@ -11,7 +11,7 @@ public class PropertyTest {
     public void write() throws Exception {
         Property property = new Property();
         property.setter = TestClass.class.getMethod("setPrice", double.class);
-        property.setWriteConverter(Double::parseDouble);
+        property.setConverter(Converters.DOUBLE);
 
         TestClass testClass = new TestClass();
         property.write(testClass, "42.999");
@@ -23,7 +23,7 @@ public class PropertyTest {
     public void read() throws Exception {
         Property property = new Property();
         property.getter = TestClass.class.getMethod("getPrice");
-        property.setReadConverter(d -> Double.toString((Double)d));
+        property.setConverter(Converters.DOUBLE);
 
         TestClass testClass = new TestClass();
         testClass.setPrice(42.999);
@@ -32,6 +32,22 @@ public class PropertyTest {
         Assert.assertEquals("42.999", price);
     }
 
+    @Test
+    public void compiledAccessor() throws Exception {
+        Property property = new Property();
+        property.getter = TestClass.class.getMethod("getPrice");
+        property.setter = TestClass.class.getMethod("setPrice", double.class);
+        property.setConverter(Converters.DOUBLE);
+        property.compileAccessor();
+        Assert.assertNotNull(property.getAccessor());
+
+        TestClass testClass = new TestClass();
+        property.write(testClass, "42.999");
+
+        Assert.assertEquals(42.999, testClass.getPrice(), 0.0);
+        Assert.assertEquals("42.999", property.read(testClass));
+    }
+
     public static class TestClass {
         private double price;
 
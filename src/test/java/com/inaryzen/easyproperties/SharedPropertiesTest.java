@@ -0,0 +1,138 @@
+package com.inaryzen.easyproperties;
+
+import com.inaryzen.easyproperties.PropertiesManagerTest.PropertiesBean;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedPropertiesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Two instances share a file: a save of one makes the save of the other fail until it is refreshed; a refresh
+     * applies only the changed keys and keeps the unsaved values of the other keys
+     */
+    @Test
+    public void compareAndSet() throws Exception {
+        String propertiesFile = folder.getRoot().toPath().resolve("app.properties").toString();
+        PropertiesManager manager = new PropertiesManager();
+        manager.saveProperties(manager.registerProperties(PropertiesBean.class, propertiesFile));
+        SharedProperties<PropertiesBean> first = new PropertiesManager().registerShared(PropertiesBean.class, propertiesFile);
+        SharedProperties<PropertiesBean> second = new PropertiesManager().registerShared(PropertiesBean.class, propertiesFile);
+        assertEquals(0, first.getVersion());
+
+        first.get().setName("first");
+        assertTrue(first.save());
+        assertEquals(1, first.getVersion());
+        assertTrue(Files.exists(ChangeLog.logPath(folder.getRoot().toPath().resolve("app.properties"))));
+
+        second.get().setId(2);
+        assertFalse(second.save());
+        assertTrue(second.refresh());
+        assertEquals(1, second.getVersion());
+        assertEquals("first", second.get().getName());
+        assertEquals(2, second.get().getId());
+        assertTrue(second.save());
+        assertEquals(2, second.getVersion());
+
+        first.get().setPrice(3.5);
+        assertTrue(first.refresh());
+        assertEquals(2, first.get().getId());
+        assertEquals(3.5, first.get().getPrice(), 0);
+        assertFalse(second.refresh());
+
+        PropertiesBean loaded = new PropertiesManager().registerProperties(PropertiesBean.class, propertiesFile);
+        assertEquals("first", loaded.getName());
+        assertEquals(new PropertiesBean().getPrice(), loaded.getPrice(), 0);
+        assertEquals(2, loaded.getId());
+    }
+
+    @Test
+    public void update() throws Exception {
+        String propertiesFile = folder.getRoot().toPath().resolve("app.properties").toString();
+        SharedProperties<PropertiesBean> first = PropertiesManager.shared(PropertiesBean.class, propertiesFile);
+        SharedProperties<PropertiesBean> second = PropertiesManager.shared(PropertiesBean.class, propertiesFile);
+
+        first.update(b -> b.setName("first"));
+        PropertiesBean updated = second.update(b -> b.setId(b.getId() + 1));
+        assertEquals("first", updated.getName());
+        assertEquals(2, second.getVersion());
+
+        assertTrue(first.refresh());
+        assertEquals(updated.getId(), first.get().getId());
+        assertTrue(first.update(b -> { }) == first.get());
+        assertEquals(2, first.getVersion());
+    }
+
+    /**
+     * A compacted log and a file saved without the log are both followed by reading the whole file
+     */
+    @Test
+    public void reload() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("app.properties");
+        SharedProperties<PropertiesBean> first = new PropertiesManager().registerShared(PropertiesBean.class, path.toString());
+        SharedProperties<PropertiesBean> second = new PropertiesManager().registerShared(PropertiesBean.class, path.toString());
+
+        char[] name = new char[(int) ChangeLog.COMPACTION_THRESHOLD / 2 + 1];
+        for (char c : new char[]{'a', 'b'}) {
+            Arrays.fill(name, c);
+            first.get().setName(new String(name));
+            assertTrue(first.save());
+        }
+        assertEquals(ChangeLog.HEADER_SIZE, Files.size(ChangeLog.logPath(path)));
+
+        assertTrue(second.refresh());
+        assertEquals(2, second.getVersion());
+        assertEquals(new String(name), second.get().getName());
+
+        PropertiesManager manager = new PropertiesManager();
+        PropertiesBean bean = manager.registerProperties(PropertiesBean.class, path.toString());
+        bean.setId(7);
+        // the modification time may stay the same within its resolution, the size changes anyway
+        bean.setName("c");
+        manager.saveProperties(bean);
+
+        assertTrue(second.refresh());
+        assertEquals(7, second.get().getId());
+        assertEquals("c", second.get().getName());
+        assertFalse(second.refresh());
+        assertFalse(first.save());
+    }
+
+    /**
+     * A file saved without the log that keeps its size and modification time is detected by the checksum while it
+     * has been modified within the timestamp resolution
+     */
+    @Test
+    public void sameSizeAndModificationTime() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(path, "id=1\n".getBytes(StandardCharsets.ISO_8859_1));
+        SharedProperties<PropertiesBean> shared = new PropertiesManager().registerShared(PropertiesBean.class, path.toString());
+        assertEquals(1, shared.get().getId());
+
+        FileTime lastModified = Files.getLastModifiedTime(path);
+        Files.write(path, "id=2\n".getBytes(StandardCharsets.ISO_8859_1));
+        Files.setLastModifiedTime(path, lastModified);
+        assertFalse(shared.save());
+        assertTrue(shared.refresh());
+        assertEquals(2, shared.get().getId());
+        assertFalse(shared.refresh());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nestedProperties() throws Exception {
+        new PropertiesManager().registerShared(NestedPropertyTest.NestedBean.class,
+                folder.getRoot().toPath().resolve("app.properties").toString());
+    }
+}
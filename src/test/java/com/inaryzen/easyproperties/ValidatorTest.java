@@ -0,0 +1,198 @@
+package com.inaryzen.easyproperties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ValidatorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Loads a file that violates all the constraints and has a value that cannot be converted, checks that all the
+     * violations are reported at once and the class can be registered again
+     */
+    @Test
+    public void allViolations() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        Files.write(propertiesFile, "port=70000\nratio=x\nhost=local host\nmode=fast\n"
+                .getBytes(StandardCharsets.ISO_8859_1));
+
+        PropertiesManager manager = new PropertiesManager();
+        try {
+            manager.registerProperties(ConstrainedBean.class, propertiesFile.toString());
+            fail();
+        } catch (ValidationException e) {
+            Map<String, String> expected = new LinkedHashMap<>();
+            expected.put("host", "\"local host\" does not match [a-z.]+");
+            expected.put("mode", "\"fast\" is not one of [sync, async]");
+            expected.put("name", "is required");
+            expected.put("port", "70000 is greater than 65535");
+            assertEquals(propertiesFile.toString(), e.getPropertiesFile());
+            assertEquals(expected.keySet().size() + 1, e.getViolations().size());
+            for (Map.Entry<String, String> violation : expected.entrySet())
+                assertEquals(violation.getValue(), e.getViolations().get(violation.getKey()));
+            assertEquals("cannot convert \"x\": java.lang.NumberFormatException: For input string: \"x\"",
+                    e.getViolations().get("ratio"));
+        }
+
+        Files.write(propertiesFile, "port=8080\nname=app\n".getBytes(StandardCharsets.ISO_8859_1));
+        ConstrainedBean bean = manager.registerProperties(ConstrainedBean.class, propertiesFile.toString());
+        assertEquals(8080, bean.getPort());
+        assertEquals("app", bean.getName());
+    }
+
+    @Test
+    public void missingFile() throws Exception {
+        Path propertiesFile = folder.getRoot().toPath().resolve("app.properties");
+        try {
+            new PropertiesManager().registerProperties(ConstrainedBean.class, propertiesFile.toString());
+            fail();
+        } catch (ValidationException e) {
+            assertEquals("is required", e.getViolations().get("name"));
+            assertEquals(1, e.getViolations().size());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lazy() throws Exception {
+        new PropertiesManager().registerLazy(ConstrainedBean.class,
+                folder.getRoot().toPath().resolve("app.properties").toString());
+    }
+
+    @Test
+    public void layered() throws Exception {
+        Map<String, String> values = new HashMap<>();
+        values.put("port", "0");
+        try {
+            PropertiesManager.layered(ConstrainedBean.class, ConfigSource.defaults(values));
+            fail();
+        } catch (ValidationException e) {
+            assertEquals("0 is less than 1", e.getViolations().get("port"));
+            assertEquals("is required", e.getViolations().get("name"));
+        }
+
+        values.put("port", "8080");
+        values.put("name", "app");
+        assertEquals(8080, PropertiesManager.layered(ConstrainedBean.class, ConfigSource.defaults(values)).get().getPort());
+    }
+
+    /**
+     * A change of another instance that violates the constraints is rejected by refresh without changing the
+     * instance; the refresh after a valid change applies both changes
+     */
+    @Test
+    public void sharedRefresh() throws Exception {
+        String propertiesFile = folder.getRoot().toPath().resolve("app.properties").toString();
+        Files.write(Paths.get(propertiesFile), "name=app\n".getBytes(StandardCharsets.ISO_8859_1));
+        SharedProperties<ConstrainedBean> first = PropertiesManager.shared(ConstrainedBean.class, propertiesFile);
+        SharedProperties<ConstrainedBean> second = PropertiesManager.shared(ConstrainedBean.class, propertiesFile);
+
+        first.get().setPort(0);
+        assertTrue(first.save());
+        try {
+            second.refresh();
+            fail();
+        } catch (ValidationException e) {
+            assertEquals(Collections.singleton("port"), e.getViolations().keySet());
+        }
+        assertEquals(80, second.get().getPort());
+
+        first.get().setPort(8080);
+        assertTrue(first.save());
+        assertTrue(second.refresh());
+        assertEquals(8080, second.get().getPort());
+        assertEquals(2, second.getVersion());
+    }
+
+    @Test
+    public void noConstraints() throws Exception {
+        assertNull(Validator.of(Metadata.indexOf(PropertiesManagerTest.PropertiesBean.class)));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void rangeOfString() throws Exception {
+        new PropertiesManager().registerProperties(InvalidRangeBean.class,
+                folder.getRoot().toPath().resolve("app.properties").toString());
+    }
+
+    public static class ConstrainedBean {
+        private int port = 80;
+        private double ratio = 0.5;
+        private String host = "localhost";
+        private String mode = "sync";
+        private String name = "";
+
+        @Range(min = 1, max = 65535)
+        public int getPort() {
+            return port;
+        }
+
+        public void setPort(int port) {
+            this.port = port;
+        }
+
+        @Range(min = 0, max = 1)
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        @Matches("[a-z.]+")
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        @OneOf({"sync", "async"})
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        @Required
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class InvalidRangeBean {
+        private String name = "";
+
+        @Range(max = 10)
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}